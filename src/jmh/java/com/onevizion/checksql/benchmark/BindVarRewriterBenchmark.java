@@ -0,0 +1,66 @@
+package com.onevizion.checksql.benchmark;
+
+import com.onevizion.checksql.BindVarRewriter;
+import com.onevizion.checksql.vo.BindRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewriting of built-in bind variables of the whole corpus by the precompiled rewriter of BindRules and by
+ * sequential case-insensitive replaceAll calls
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindVarRewriterBenchmark {
+
+    @Param({"1000"})
+    private int corpusSize;
+
+    private List<String> corpus;
+    private BindVarRewriter rewriter;
+
+    @Setup
+    public void setUp() {
+        corpus = Corpus.generate(corpusSize);
+        rewriter = BindRules.create("rule", "sql_text", null).getRewriter();
+    }
+
+    @Benchmark
+    public void rewriter(Blackhole blackhole) {
+        for (String sql : corpus) {
+            blackhole.consume(rewriter.rewrite(sql));
+        }
+    }
+
+    @Benchmark
+    public void sequentialReplaceAll(Blackhole blackhole) {
+        for (String sql : corpus) {
+            String newSql = sql;
+            for (String[] bindVar : Corpus.RULE_BIND_VARS) {
+                newSql = newSql.replaceAll("(?i)" + Pattern.quote(bindVar[0]),
+                        Matcher.quoteReplacement(bindVar[1]));
+            }
+            blackhole.consume(newSql);
+        }
+    }
+
+}
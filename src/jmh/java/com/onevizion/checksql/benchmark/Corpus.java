@@ -0,0 +1,77 @@
+package com.onevizion.checksql.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated SQL of the RULE.SQL_TEXT kind: SELECT statements and PL/SQL blocks with the bind variables of
+ * built-in rules in mixed case. Same seed gives the same corpus, so results of runs are comparable.
+ */
+public class Corpus {
+
+    /**
+     * Built-in bind variables of RULE.SQL_TEXT in the order of BindRules, used by the sequential replacement
+     * which was made before the rewriter
+     */
+    public static final String[][] RULE_BIND_VARS = {
+            {":return_str", "v_ret_str"},
+            {":id_num", "0"},
+            {":pk", "0"},
+            {":ln", "0"},
+            {":parent_id", "0"},
+            {":child_id", "0"},
+            {":imp_run_id", "0"}};
+
+    private static final String[] BIND_VARS = {":pk", ":PK", ":id_num", ":ID_NUM", ":ln", ":parent_id",
+            ":Parent_Id", ":child_id", ":imp_run_id", ":p_value", ":xitor_id"};
+
+    private static final long SEED = 20201017L;
+
+    private Corpus() {
+    }
+
+    public static List<String> generate(int size) {
+        Random random = new Random(SEED);
+        List<String> statements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(3) == 0) {
+                statements.add(generateSelect(random, i));
+            } else {
+                statements.add(generateBlock(random, i));
+            }
+        }
+        return statements;
+    }
+
+    private static String generateSelect(Random random, int num) {
+        StringBuilder sql = new StringBuilder("select t.xitor_id, t.xitor_key, c.value\r\n");
+        sql.append("from xitor t join config_value_number c on (c.key_value = t.xitor_id)\r\n");
+        sql.append("where t.program_id = ").append(num).append("\r\n");
+        int conditions = 1 + random.nextInt(8);
+        for (int i = 0; i < conditions; i++) {
+            sql.append(" and c.config_field_id = ").append(nextBindVar(random)).append("\r\n");
+        }
+        sql.append("order by t.xitor_key");
+        return sql.toString();
+    }
+
+    private static String generateBlock(Random random, int num) {
+        StringBuilder sql = new StringBuilder("declare\r\n v_cnt number;\r\nbegin\r\n");
+        int statements = 1 + random.nextInt(12);
+        for (int i = 0; i < statements; i++) {
+            sql.append(" select count(*) into v_cnt from rule_").append(num % 50)
+               .append(" where id = ").append(nextBindVar(random))
+               .append(" and parent_id = ").append(nextBindVar(random)).append(";\r\n");
+            sql.append(" if v_cnt > 0 then\r\n  pkg_rule.log_value(").append(nextBindVar(random))
+               .append(", 'value of step ").append(i).append("');\r\n end if;\r\n");
+        }
+        sql.append(" :return_str := to_char(v_cnt);\r\nend;");
+        return sql.toString();
+    }
+
+    private static String nextBindVar(Random random) {
+        return BIND_VARS[random.nextInt(BIND_VARS.length)];
+    }
+
+}
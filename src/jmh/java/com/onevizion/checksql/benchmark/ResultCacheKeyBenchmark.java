@@ -0,0 +1,48 @@
+package com.onevizion.checksql.benchmark;
+
+import com.onevizion.checksql.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of the compiled SQL into keys of the result cache and of the run compile results
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultCacheKeyBenchmark {
+
+    @Param({"1000"})
+    private int corpusSize;
+
+    private List<String> corpus;
+
+    @Setup
+    public void setUp() {
+        corpus = Corpus.generate(corpusSize);
+    }
+
+    @Benchmark
+    public void getKey(Blackhole blackhole) {
+        for (String sql : corpus) {
+            blackhole.consume(ResultCache.getKey("VIEW", sql));
+        }
+    }
+
+}
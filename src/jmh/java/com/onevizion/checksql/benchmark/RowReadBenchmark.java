@@ -0,0 +1,135 @@
+package com.onevizion.checksql.benchmark;
+
+import com.onevizion.checksql.vo.CheckSqlQuery;
+import com.onevizion.checksql.vo.TableColumns;
+import com.onevizion.checksql.vo.TableValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of primary key and SQL values of fetched rows, columns are taken by numbers resolved once per table
+ * or by names for each row. Rows are held by an in-memory row set with the columns of a table query
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowReadBenchmark {
+
+    private static final String PK_COL_NAME = "rule_id";
+    private static final String SQL_COL_NAME = "sql_text";
+    private static final String TOTAL_ROWS_COL_NAME = "totalrows";
+
+    @Param({"1000"})
+    private int corpusSize;
+
+    private CachedRowSet rowSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        List<String> corpus = Corpus.generate(corpusSize);
+
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(3);
+        setColumn(metaData, 1, PK_COL_NAME, Types.NUMERIC);
+        setColumn(metaData, 2, SQL_COL_NAME, Types.VARCHAR);
+        setColumn(metaData, 3, TOTAL_ROWS_COL_NAME, Types.NUMERIC);
+
+        rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        for (int i = 0; i < corpus.size(); i++) {
+            rowSet.moveToInsertRow();
+            rowSet.updateString(1, String.valueOf(i + 1));
+            rowSet.updateString(2, corpus.get(i));
+            rowSet.updateString(3, String.valueOf(corpus.size()));
+            rowSet.insertRow();
+        }
+        rowSet.moveToCurrentRow();
+    }
+
+    @Benchmark
+    public void readByResolvedColumns(Blackhole blackhole) throws SQLException {
+        SqlRowSet sqlRowSet = openRows();
+        TableColumns columns = null;
+        while (sqlRowSet.next()) {
+            if (columns == null) {
+                columns = new TableColumns(sqlRowSet, new Query());
+            }
+            blackhole.consume(TableValue.createString(sqlRowSet, columns.getPrimKeyColNum(), Integer.MAX_VALUE));
+            blackhole.consume(TableValue.createString(sqlRowSet, columns.getSqlColNum(), Integer.MAX_VALUE));
+        }
+    }
+
+    @Benchmark
+    public void readByColumnNames(Blackhole blackhole) throws SQLException {
+        SqlRowSet sqlRowSet = openRows();
+        while (sqlRowSet.next()) {
+            blackhole.consume(TableValue.createString(sqlRowSet, PK_COL_NAME));
+            blackhole.consume(TableValue.createString(sqlRowSet, SQL_COL_NAME));
+        }
+    }
+
+    private SqlRowSet openRows() throws SQLException {
+        rowSet.beforeFirst();
+        return new ResultSetWrappingSqlRowSet(rowSet);
+    }
+
+    private static void setColumn(RowSetMetaDataImpl metaData, int colNum, String colName, int colType)
+            throws SQLException {
+        metaData.setColumnName(colNum, colName);
+        metaData.setColumnLabel(colNum, colName);
+        metaData.setColumnType(colNum, colType);
+    }
+
+    private static class Query implements CheckSqlQuery {
+
+        @Override
+        public String getSql() {
+            return null;
+        }
+
+        @Override
+        public String getTableName() {
+            return "rule";
+        }
+
+        @Override
+        public String getSqlColName() {
+            return SQL_COL_NAME;
+        }
+
+        @Override
+        public String getPrimKeyColName() {
+            return PK_COL_NAME;
+        }
+
+        @Override
+        public String getQueryType() {
+            return "SQL";
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.onevizion.checksql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Set of literal replacements applied by one scan of SQL text instead of one scan per replacement. At each
+ * position rules are tried in the order they were added and the first matched rule wins. Positions which can not
+ * start any rule are skipped by a table of first characters, so most of the text is not compared with rules.
+ */
+public class BindVarRewriter {
+
+    private static final int ASCII_SIZE = 128;
+
+    private final List<String> targets = new ArrayList<>();
+    private final Map<String, String> replacements = new HashMap<>();
+    private final boolean ignoreCase;
+
+    private String[] compiledTargets;
+    private String[] compiledReplacements;
+    private boolean[] asciiFirstChars;
+    private boolean nonAsciiFirstChars;
+
+    public BindVarRewriter(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Rules with blank target or with a target which is already added are ignored
+     */
+    public BindVarRewriter add(String target, String replacement) {
+        if (compiledTargets != null) {
+            throw new IllegalStateException("Rewriter is already compiled");
+        }
+        if (StringUtils.isBlank(target) || replacements.putIfAbsent(getReplacementKey(target), replacement) != null) {
+            return this;
+        }
+        targets.add(target);
+        return this;
+    }
+
+    public BindVarRewriter addAll(BindVarRewriter rewriter) {
+        for (String target : rewriter.targets) {
+            add(target, rewriter.replacements.get(rewriter.getReplacementKey(target)));
+        }
+        return this;
+    }
+
+    public BindVarRewriter compile() {
+        if (compiledTargets == null) {
+            compiledTargets = targets.toArray(new String[0]);
+            compiledReplacements = new String[compiledTargets.length];
+            asciiFirstChars = new boolean[ASCII_SIZE];
+            for (int i = 0; i < compiledTargets.length; i++) {
+                compiledReplacements[i] = replacements.get(getReplacementKey(compiledTargets[i]));
+                char firstChar = compiledTargets[i].charAt(0);
+                addFirstChar(firstChar);
+                if (ignoreCase) {
+                    addFirstChar(Character.toLowerCase(firstChar));
+                    addFirstChar(Character.toUpperCase(firstChar));
+                }
+            }
+        }
+        return this;
+    }
+
+    public String rewrite(String sql) {
+        if (sql == null || targets.isEmpty()) {
+            return sql;
+        }
+        compile();
+
+        StringBuilder newSql = null;
+        int end = 0;
+        int pos = 0;
+        while (pos < sql.length()) {
+            int matched = findRule(sql, pos);
+            if (matched == -1) {
+                pos++;
+                continue;
+            }
+            if (newSql == null) {
+                newSql = new StringBuilder(sql.length());
+            }
+            newSql.append(sql, end, pos);
+            newSql.append(compiledReplacements[matched]);
+            pos += compiledTargets[matched].length();
+            end = pos;
+        }
+        if (newSql == null) {
+            return sql;
+        }
+        newSql.append(sql, end, sql.length());
+        return newSql.toString();
+    }
+
+    /**
+     * @return index of the first rule which target is at the position or -1
+     */
+    private int findRule(String sql, int pos) {
+        char c = sql.charAt(pos);
+        if (c < ASCII_SIZE ? !asciiFirstChars[c] : !nonAsciiFirstChars) {
+            return -1;
+        }
+        for (int i = 0; i < compiledTargets.length; i++) {
+            if (sql.regionMatches(ignoreCase, pos, compiledTargets[i], 0, compiledTargets[i].length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addFirstChar(char c) {
+        if (c < ASCII_SIZE) {
+            asciiFirstChars[c] = true;
+        } else {
+            nonAsciiFirstChars = true;
+        }
+    }
+
+    private String getReplacementKey(String target) {
+        return ignoreCase ? target.toLowerCase(Locale.ROOT) : target;
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.exception.UnexpectedException;
+import com.onevizion.checksql.vo.SqlError;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * High-water marks (max ORA_ROWSCN of validated rows) of source tables saved after the last successful run.
+ * Marks are valid for one test schema fingerprint only and all rows are validated again when it is changed.
+ * Primary keys of rows failed by the run are saved with the mark, so a failed row is validated again by next
+ * runs until it passes even if it is not changed.
+ */
+public class ChangeTracker {
+
+    private static final String FILE_EXT = ".hwm";
+    private static final String FIELD_DELIMITER = "\t";
+
+    private final Map<String, Long> highWaterMarks = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> failedRows = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> newFailedRows = new ConcurrentHashMap<>();
+    private final Set<String> fetchedKeys = ConcurrentHashMap.newKeySet();
+    private final File file;
+    private final String fingerprint;
+
+    private ChangeTracker(File file, String fingerprint) throws IOException {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                boolean valid = fingerprint.equals(reader.readLine());
+                String line;
+                while (valid && (line = reader.readLine()) != null) {
+                    String[] fields = line.split(FIELD_DELIMITER);
+                    if (fields.length >= 2) {
+                        highWaterMarks.put(fields[0], Long.valueOf(fields[1]));
+                    }
+                    if (fields.length > 2) {
+                        failedRows.put(fields[0], new HashSet<>(Arrays.asList(fields).subList(2, fields.length)));
+                    }
+                }
+            }
+        }
+    }
+
+    public static ChangeTracker open(String dir, String name, String fingerprint) {
+        File stateDir = new File(dir);
+        if (!stateDir.isDirectory() && !stateDir.mkdirs()) {
+            throw new UnexpectedException("Can not create directory [{}]", dir);
+        }
+        try {
+            return new ChangeTracker(new File(stateDir, name + FILE_EXT), fingerprint);
+        } catch (IOException | NumberFormatException e) {
+            throw new UnexpectedException("Can not read high-water marks in [{}]", e, dir);
+        }
+    }
+
+    public int size() {
+        return highWaterMarks.size();
+    }
+
+    public Long getHighWaterMark(String key) {
+        return highWaterMarks.get(key);
+    }
+
+    /**
+     * Primary keys of rows failed by the previous run, they are fetched by this run whatever their SCN is
+     */
+    public Set<String> getFailedRows(String key) {
+        return failedRows.getOrDefault(key, Collections.emptySet());
+    }
+
+    /**
+     * Called when all rows of the key are fetched. Failed rows of the previous run are fetched again, so their
+     * SCN may be less than the mark, which is never moved back
+     */
+    public void setHighWaterMark(String key, long scn) {
+        if (scn > 0) {
+            highWaterMarks.merge(key, scn, Math::max);
+        }
+        fetchedKeys.add(key);
+    }
+
+    public void addFailedRow(String key, String entityId) {
+        newFailedRows.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(entityId);
+    }
+
+    /**
+     * Marks are written to a temporary file first, so a failed run does not leave a partially written file.
+     * Failed rows of the previous run are kept for keys which rows were not fetched completely
+     */
+    public void save() {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(fingerprint);
+                writer.write(SqlError.LINE_DELIMITER);
+                for (Map.Entry<String, Long> highWaterMark : highWaterMarks.entrySet()) {
+                    writer.write(highWaterMark.getKey() + FIELD_DELIMITER + highWaterMark.getValue());
+                    for (String entityId : getSavedFailedRows(highWaterMark.getKey())) {
+                        writer.write(FIELD_DELIMITER + entityId);
+                    }
+                    writer.write(SqlError.LINE_DELIMITER);
+                }
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not save high-water marks to [{}]", e, file.getPath());
+        }
+    }
+
+    private Set<String> getSavedFailedRows(String key) {
+        Set<String> rows = new LinkedHashSet<>();
+        if (!fetchedKeys.contains(key)) {
+            rows.addAll(getFailedRows(key));
+        }
+        rows.addAll(newFailedRows.getOrDefault(key, Collections.emptySet()));
+        return rows;
+    }
+
+}
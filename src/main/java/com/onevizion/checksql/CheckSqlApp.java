@@ -1,21 +1,32 @@
 package com.onevizion.checksql;
 
 import com.onevizion.checksql.exception.AppStartupException;
+import com.onevizion.checksql.exception.UnexpectedException;
+import com.onevizion.checksql.vo.BatchConfiguration;
 import com.onevizion.checksql.vo.Configuration;
 import com.onevizion.checksql.vo.TableNode;
 import oracle.jdbc.driver.OracleConnection;
+import oracle.ucp.UniversalConnectionPoolException;
+import oracle.ucp.admin.UniversalConnectionPoolManager;
+import oracle.ucp.admin.UniversalConnectionPoolManagerImpl;
 import oracle.ucp.jdbc.PoolDataSource;
+import oracle.ucp.jdbc.PoolDataSourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
+import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,6 +37,16 @@ public class CheckSqlApp {
     private static final String DB_CNN_PROPS_ERROR_MESSAGE = "DB connection properties should be specified in following format: <username>/<password>@<host>:<port>:<SID>";
 
     private static final String JDBC_THIN_URL_PREFIX = "jdbc:oracle:thin:@";
+
+    private static final String BEANS_XML = "com/onevizion/checksql/beans.xml";
+
+    private static final String[] POOL_BEANS = {"owner1DataSource", "test1DataSource", "owner2DataSource",
+            "test2DataSource"};
+
+    // MDC key of the schema log files are written for in batch mode, see logback.xml
+    public static final String LOG_SCHEMA_KEY = "logSchema";
+
+    private static final String BATCH_LOG_SCHEMA = "batch";
     
     private List<TableNode> values = new ArrayList();
 
@@ -51,35 +72,128 @@ public class CheckSqlApp {
             throw new Exception("Expected command line arguments: <remote_owner>/<password>@<connect_identifier> [<local_owner>/<password>@<connect_identifier>] [path_to_config_file]");
         }
 
+        BatchConfiguration batch = ConfigurationUtils.loadBatchConfiguration(listArgs);
+        if (batch != null) {
+            app.runBatch(batch);
+            return;
+        }
+
         Configuration configuration = ConfigurationUtils.loadConfiguration(listArgs);
 
-        ApplicationContext ctx = app.getAppContext("com/onevizion/checksql/beans.xml", configuration);
+        ApplicationContext ctx = app.getAppContext(BEANS_XML, configuration);
+        runSchema(ctx, configuration, "");
+    }
+
+    /**
+     * Schemas of the batch are processed in one JVM, at most the given number at a time. Each schema has own
+     * application context, since pools, AppSettings and the executor keep state of one schema, and writes own
+     * log files
+     */
+    private void runBatch(BatchConfiguration batch) throws InterruptedException {
+        System.setProperty("schema", BATCH_LOG_SCHEMA);
+        // Root logger prints errors only, progress of the batch is printed by the logger of the package
+        logger = LoggerFactory.getLogger(CheckSqlApp.class);
+        logger.info(CheckSqlExecutor.INFO_MARKER, "Batch of {} schemas is started, {} at a time",
+                batch.getEntries().size(), batch.getThreads());
+
+        AtomicInteger failedCount = new AtomicInteger();
+        ExecutorService batchPool = Executors.newFixedThreadPool(batch.getThreads());
+        for (int i = 0; i < batch.getEntries().size(); i++) {
+            List<String> entryArgs = batch.getEntries().get(i);
+            int entryNum = i + 1;
+            // UCP requires unique pool names in JVM
+            String poolSuffix = "_batch" + entryNum;
+            batchPool.execute(() -> {
+                // Entry which arguments can not be parsed is reported by its number in the batch log
+                String logSchema = "entry " + entryNum;
+                ClassPathXmlApplicationContext ctx = null;
+                try {
+                    Configuration configuration = ConfigurationUtils.loadConfiguration(entryArgs);
+                    logSchema = getLogSchema(configuration);
+                    MDC.put(LOG_SCHEMA_KEY, logSchema);
+                    checkArgsAndThrow(configuration);
+                    ctx = configAppContext(BEANS_XML);
+                    if (!runSchema(ctx, configuration, poolSuffix)) {
+                        failedCount.incrementAndGet();
+                        logger.error(CheckSqlExecutor.INFO_MARKER, "checksql of [{}] is failed", logSchema);
+                    }
+                } catch (Exception e) {
+                    failedCount.incrementAndGet();
+                    logger.error(CheckSqlExecutor.INFO_MARKER, "checksql of [{}] is failed", logSchema, e);
+                } finally {
+                    if (ctx != null) {
+                        ctx.close();
+                    }
+                    destroyPools(poolSuffix);
+                    MDC.remove(LOG_SCHEMA_KEY);
+                }
+                logger.info(CheckSqlExecutor.INFO_MARKER, "Schema [{}] is processed", logSchema);
+            });
+        }
+        batchPool.shutdown();
+        batchPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        logger.info(CheckSqlExecutor.INFO_MARKER, "Batch is completed, {} of {} schemas are failed to process",
+                failedCount.get(), batch.getEntries().size());
+    }
+
+    /**
+     * @return false when checksql of the schema is failed, the error is logged already
+     */
+    private static boolean runSchema(ApplicationContext ctx, Configuration configuration, String poolSuffix) {
+        if (!poolSuffix.isEmpty()) {
+            for (String poolBean : POOL_BEANS) {
+                PoolDataSource ds = (PoolDataSource) ctx.getBean(poolBean);
+                try {
+                    ds.setConnectionPoolName(ds.getConnectionPoolName() + poolSuffix);
+                } catch (SQLException e) {
+                    throw new UnexpectedException("Can not set name of pool [{}]", e, poolBean);
+                }
+            }
+        }
 
         String[] owner1DbUrlParts = parseDbCnnStr(configuration.getRemoteOwner());
         configuration.setOwner1DbSchema(owner1DbUrlParts[0]);
         configDataSource((PoolDataSource) ctx.getBean("owner1DataSource"), owner1DbUrlParts, "check-sql_owner1");
+        // Workers look up bind variables in owner schema while fetch threads read rows
+        configPool((PoolDataSource) ctx.getBean("owner1DataSource"),
+                configuration.getWorkers() + configuration.getFetchThreads(),
+                configuration.getMaxStatements());
         configuration.setUrl(owner1DbUrlParts[2]);
 
         String[] test1DbUrlParts = parseDbCnnStr(configuration.getRemoteOwner());
         configuration.setTest1DbSchema(test1DbUrlParts[0]);
         configDataSource((PoolDataSource) ctx.getBean("test1DataSource"), test1DbUrlParts, "check-sql_test1");
+        configPool((PoolDataSource) ctx.getBean("test1DataSource"), getTestPoolSize(configuration),
+                configuration.getMaxStatements());
 
         if (configuration.isUseSecondTest()) {
             String[] owner2DbUrlParts = parseDbCnnStr(configuration.getLocalOwner());
             configuration.setOwner2DbSchema(owner2DbUrlParts[0]);
             configDataSource((PoolDataSource) ctx.getBean("owner2DataSource"), owner2DbUrlParts, "check-sql_owner2");
+            configPool((PoolDataSource) ctx.getBean("owner2DataSource"), 1, configuration.getMaxStatements());
 
             //String[] test2DbUrlParts = parseDbCnnStr(configuration.getLocalUser());
             String[] test2DbUrlParts = parseDbCnnStr(configuration.getLocalOwner());
             configuration.setTest2DbSchema(test2DbUrlParts[0]);
             configDataSource((PoolDataSource) ctx.getBean("test2DataSource"), test2DbUrlParts, "check-sql_test2");
+            configPool((PoolDataSource) ctx.getBean("test2DataSource"), getTestPoolSize(configuration),
+                configuration.getMaxStatements());
+        }
+
+        // Additional test schemas are numbered after test1 and test2
+        List<DataSource> targetDataSources = new ArrayList<>();
+        for (int i = 0; i < configuration.getTargets().size(); i++) {
+            targetDataSources.add(createTargetDataSource(configuration, configuration.getTargets().get(i),
+                    String.valueOf(i + 3), poolSuffix));
         }
 
         CheckSqlExecutor executor = ctx.getBean(CheckSqlExecutor.class);
         try {
-            executor.run(configuration);
+            return executor.run(configuration, targetDataSources);
         } catch (Exception e) {
             logger.error(CheckSqlExecutor.INFO_MARKER, "Unexpected error", e);
+            return false;
         }
     }
 
@@ -119,14 +233,17 @@ public class CheckSqlApp {
     }
 
     private void configLogger(Configuration configuration) {
-        String[] cnnProps = parseDbCnnStr(configuration.getRemoteOwner());
-
         // System property to be used by logger
-        String schema = cnnProps[0] + "." + cnnProps[2].split("@")[1].split("\\.")[0];
-        System.setProperty("schema", schema.replace(":", ""));
+        System.setProperty("schema", getLogSchema(configuration));
         logger = LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
     }
 
+    private static String getLogSchema(Configuration configuration) {
+        String[] cnnProps = parseDbCnnStr(configuration.getRemoteOwner());
+        String schema = cnnProps[0] + "." + cnnProps[2].split("@")[1].split("\\.")[0];
+        return schema.replace(":", "");
+    }
+
     private void checkArgsAndThrow(Configuration configuration) throws IllegalArgumentException {
         /*if (StringUtils.isBlank(configuration.getRemoteOwner()) || StringUtils.isBlank(configuration.getRemoteUser())) {
             throw new IllegalArgumentException("both remote_owner and remote_user should set");
@@ -148,13 +265,60 @@ public class CheckSqlApp {
             parseDbCnnStr(configuration.getLocalOwner());
             //parseDbCnnStr(configuration.getLocalUser());
         }
+
+        for (String target : configuration.getTargets()) {
+            parseDbCnnStr(target);
+        }
     }
 
-    private ApplicationContext configAppContext(String beansXmlClassPath) {
-        ApplicationContext ctx = new ClassPathXmlApplicationContext("classpath:" + beansXmlClassPath);
+    private ClassPathXmlApplicationContext configAppContext(String beansXmlClassPath) {
+        ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext("classpath:" + beansXmlClassPath);
         return ctx;
     }
 
+    /**
+     * Pool of an additional test schema is configured the same way as test1DataSource in beans.xml
+     */
+    private static DataSource createTargetDataSource(Configuration configuration, String cnnStr, String testNum,
+            String poolSuffix) {
+        PoolDataSource ds = PoolDataSourceFactory.getPoolDataSource();
+        try {
+            ds.setConnectionFactoryClassName("oracle.jdbc.pool.OracleDataSource");
+            ds.setConnectionPoolName("OnevizionPool_check-sql_test" + testNum + poolSuffix);
+            ds.setInitialPoolSize(1);
+            ds.setMinPoolSize(1);
+            ds.setMaxPoolSize(1);
+            ds.setInactiveConnectionTimeout(0);
+            ds.setMaxStatements(0);
+            Properties props = new Properties();
+            props.setProperty("oracle.jdbc.J2EE13Compliant", "true");
+            ds.setConnectionProperties(props);
+        } catch (SQLException e) {
+            throw new UnexpectedException("[Test" + testNum + "] Can not create a pool", e);
+        }
+        configDataSource(ds, parseDbCnnStr(cnnStr), "check-sql_test" + testNum);
+        configPool(ds, getTestPoolSize(configuration), configuration.getMaxStatements());
+        return ds;
+    }
+
+    /**
+     * Pools are not closed with the application context, so connections of a processed schema are released
+     * by destroying its pools
+     */
+    private static void destroyPools(String poolSuffix) {
+        try {
+            UniversalConnectionPoolManager poolManager =
+                    UniversalConnectionPoolManagerImpl.getUniversalConnectionPoolManager();
+            for (String poolName : poolManager.getConnectionPoolNames()) {
+                if (poolName.endsWith(poolSuffix)) {
+                    poolManager.destroyConnectionPool(poolName);
+                }
+            }
+        } catch (UniversalConnectionPoolException e) {
+            logger.info(CheckSqlExecutor.INFO_MARKER, "Can't destroy pools", e);
+        }
+    }
+
     private static void configDataSource(PoolDataSource ds, String[] cnnProps, String programName) {
         try {
             ds.setUser(cnnProps[0]);
@@ -173,4 +337,26 @@ public class CheckSqlApp {
         }
     }
 
+    /**
+     * Each worker holds own test connection for the whole run, so PID label is applied by
+     * ConnectionLabelingCallback once per connection however big the pool is
+     */
+    static int getTestPoolSize(Configuration configuration) {
+        if (configuration.getPoolSize() == null) {
+            return configuration.getWorkers();
+        }
+        return configuration.getPoolSize();
+    }
+
+    private static void configPool(PoolDataSource ds, int maxPoolSize, int maxStatements) {
+        try {
+            if (ds.getMaxPoolSize() < maxPoolSize) {
+                ds.setMaxPoolSize(maxPoolSize);
+            }
+            ds.setMaxStatements(maxStatements);
+        } catch (SQLException e) {
+            logger.info(CheckSqlExecutor.INFO_MARKER, "Can't set pool size", e);
+        }
+    }
+
 }
\ No newline at end of file
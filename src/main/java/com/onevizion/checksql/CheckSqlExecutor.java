@@ -4,20 +4,54 @@ import com.onevizion.checksql.exception.SqlParsingException;
 import com.onevizion.checksql.exception.UnexpectedException;
 import com.onevizion.checksql.vo.*;
 import oracle.ucp.jdbc.PoolDataSourceImpl;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.CallableStatementCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,24 +79,56 @@ public class CheckSqlExecutor {
     @Autowired
     private AppSettings appSettings;
 
-    private static final String FIND_IMP_DATA_TYPE_PARAM_SQL_PARAM_BY_IMP_DATA_TYPE_ID = "select sql_parameter from imp_data_type_param where imp_data_type_id = ?";
+    private static final String FIND_DB_OBJECT_ERRORS = "select text, line from all_errors where name = ? and type = 'PROCEDURE'";
 
-    private static final String FIND_RULE_PARAM_SQL_PARAM_BY_ENTITY_ID = "select ID_FIELD from rule r join rule_type t on (r.rule_type_id = t.rule_type_id) where r.rule_id = ?";
+    private static final String FIND_DB_OBJECTS_ERRORS = "select name, text, line from all_errors where owner = user and type = 'PROCEDURE' and name in (:names) order by name, sequence";
 
-    private static final String FIND_IMP_ENTITY_PARAM_SQL_PARAM_BY_ENTITY_ID = "select sql_parameter from imp_entity_param where imp_entity_id = ?";
+    private static final String FIND_DB_OBJECTS_DEPENDENCIES = "select d.name, d.referenced_owner, d.referenced_name, d.referenced_type, to_char(o.last_ddl_time, 'yyyymmddhh24miss') as last_ddl_time from all_dependencies d left join all_objects o on (o.owner = d.referenced_owner and o.object_name = d.referenced_name and o.object_type = d.referenced_type) where d.owner = user and d.name in (:names) and d.referenced_owner <> 'SYS'";
 
-    private static final String FIND_DB_OBJECT_ERRORS = "select text, line from all_errors where name = ? and type = 'PROCEDURE'";
+    private static final String FIND_OBJECTS_DDL_TIME = "select owner, object_name, object_type, to_char(last_ddl_time, 'yyyymmddhh24miss') as last_ddl_time from all_objects where owner in (:owners)";
+
+    private static final String DEPENDENCY_KEY_DELIMITER = ".";
+
+    private static final String NON_EXISTENT_TYPE = "NON-EXISTENT";
+
+    private static final String NO_DDL_TIME = "-";
+
+    private static final String EXISTING_OBJECT = "+";
+
+    private static final String FIND_TABLES_NUM_ROWS = "select lower(table_name) as table_name, num_rows from user_tables";
+
+    private static final String FIND_TEST_SCHEMA_FINGERPRINT = "select to_char(max(last_ddl_time), 'yyyymmddhh24miss') || '/' || count(*) from all_objects where object_name not like 'CHECKSQL%'";
 
-    private static final String PLSQL_PROC_NAME = "CHECKSQL_PLSQL";
+    private static final String PARSE_SELECT = "declare\r\n"
+            + " v_sql clob := ?;\r\n"
+            + " v_cursor integer := dbms_sql.open_cursor;\r\n"
+            + "begin\r\n"
+            + " dbms_sql.parse(v_cursor, v_sql, dbms_sql.native);\r\n"
+            + " dbms_sql.close_cursor(v_cursor);\r\n"
+            + "exception when others then\r\n"
+            + " dbms_sql.close_cursor(v_cursor);\r\n"
+            + " raise;\r\n"
+            + "end;";
 
-    private static final String SELECT_VIEW_NAME = "CHECKSQL_SELECT";
+    private static final String BULK_COMPILE_RESOURCE = "bulk_compile.sql";
 
-    private static final String DROP_PLSQL_PROC = "drop procedure " + PLSQL_PROC_NAME;
+    private static final String BULK_FIELD_DELIMITER = ",";
 
-    private static final String DROP_SELECT_VIEW = "drop view " + SELECT_VIEW_NAME;
+    private static final String BULK_PARSE_SELECT = "S";
+
+    private static final String BULK_CREATE_VIEW = "V";
+
+    private static final String BULK_CREATE_PROC = "P";
+
+    private static final String BULK_ERROR = "E";
+
+    private static final String DROP_PLSQL_PROC = "drop procedure ";
+
+    private static final String DROP_SELECT_VIEW = "drop view ";
+
+    private static final int QUEUED_BATCHES_PER_WORKER = 4;
 
     private static final String VALUE_BIND_VAR = ":VALUE";
-    private static final String VALUE_BIND_VAR_RSTR = ":RETURN_STR";
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -72,7 +138,7 @@ public class CheckSqlExecutor {
 
     public static final Marker ERR_MARKER = MarkerFactory.getMarker("ERR_SQL");
 
-    private static SelectQuery selectQuery;
+    private SelectQuery selectQuery;
 
     private static final String FIND_FIRST_PROGRAM_ID_NEW = "select program_id from program where rownum < 2 and program_id <> 0";
 
@@ -84,60 +150,127 @@ public class CheckSqlExecutor {
     private static final String START_MSG = "checksql {} for schema [{}]" + LINE_DELIMITER;
     private static final String JDBC_THIN_URL_PREFIX = "jdbc:oracle:thin:@";
     private static final String SUMMARY_MSG = "checksql Summary for schema [{}]";
-    private static final String BIND_VAR_AND_ASSIGNMENT_OPERATOR_REGEXP = ":((?!:=|;).)*:=";
-    private static final String BIND_VAR_REPLACEMENT = "v_ret_str :=";
-    private static final String BIND_VAR_REPLACEMENT_IMP_ENTITY = "v_imp_entity :=";
+    private static final Pattern BIND_VAR_AND_ASSIGNMENT_OPERATOR_PATTERN = Pattern.compile(":((?!:=|;).)*:=");
+    private static final String BIND_VAR_VALUE = "'0'";
+    private static final Pattern DATE_BIND_VAR_PATTERN = Pattern.compile(
+            "to_date[(]{1}\\s*:\\w*\\s*,\\s*'[my]{2}[/.]{1}[dm]{2}[/.][y]{2,4}'[)]{1}");
 
 
-    private List<SqlError> sqlErrors;
-    private List<SqlError> configErrors;
+    // Errors are logged when they occur, only their number is kept per table ordinal for the summary
+    private AtomicIntegerArray tableErrCounts;
+    private AtomicIntegerArray tableConfigErrCounts;
+    private StageTimings[] tableTimings;
 
-    private boolean dropView;
-    private boolean dropProc;
     private Configuration config;
 
-    private HashMap<String, Long> tableStats = new HashMap<>();
-
-    public CheckSqlExecutor() {
-        sqlErrors = new ArrayList<>();
-        configErrors = new ArrayList<>();
-    }
-
-    public void run(Configuration config) {
+    private List<CheckSqlWorker> workers;
+    private BlockingQueue<CheckSqlWorker> idleWorkers;
+    private ThreadPoolExecutor workerPool;
+    private AtomicReference<Exception> workerError;
+    private ResultCache resultCache;
+    private Map<String, CompletableFuture<TableValue<Boolean>>> compileResults;
+    private Map<String, Map<String, List<String>>> entityParams;
+    private Map<String, BindVarRewriter> entityRewriters;
+    private String bulkCompileBlock;
+    private ChangeTracker changeTracker;
+    private ResultsWriter resultsWriter;
+    private SqlCatalog sqlCatalog;
+    private AtomicInteger precheckFailedCount = new AtomicInteger();
+    private AtomicInteger precheckPassedCount = new AtomicInteger();
+    private AtomicInteger precheckUndecidedCount = new AtomicInteger();
+    private List<DataSource> targetDataSources;
+    private List<TestTarget> targets;
+
+    private Map<String, Long> tableStats = new ConcurrentHashMap<>();
+
+    /**
+     * @param targetDataSources pools of additional test schemas, rows are compiled in each of them besides
+     *                          the main test schema
+     * @return false when the run is failed, the error is logged already
+     */
+    public boolean run(Configuration config, List<DataSource> targetDataSources) {
         logger.info(INFO_MARKER, START_MSG, getClass().getPackage().getImplementationVersion(),
                 parseUrlToSchemaWithUrlBeforeDot(config.getOwner1DbSchema(), config.getUrl()));
         this.config = config;
+        this.targetDataSources = targetDataSources;
+
+        RowArchive.Header archiveHeader = null;
+        try {
+            if (StringUtils.isNotBlank(config.getRowsArchive())) {
+                archiveHeader = RowArchive.readHeader(config.getRowsArchive());
+            }
+        } catch (Exception e) {
+            logger.info(INFO_MARKER, "checksql is failed with error\r\n{}", e);
+            return false;
+        }
 
-        configAppSettings();
+        configAppSettings(archiveHeader);
+        owner1JdbcTemplate.setFetchSize(config.getFetchSize());
         try {
-            if (StringUtils.isBlank(config.getPathToConfigFile())) {
+            if (archiveHeader != null) {
+                selectQuery = archiveHeader.getSelectQuery();
+            } else if (StringUtils.isBlank(config.getPathToConfigFile())) {
                 selectQuery = new SelectQuery(owner1JdbcTemplate);
             } else {
                 selectQuery = new SelectQuery(owner1JdbcTemplate, config.getPathToConfigFile());
             }
         } catch (Exception e) {
             logger.info(INFO_MARKER, "checksql is failed with error\r\n{}", e);
-            return;
+            return false;
+        }
+        tableErrCounts = new AtomicIntegerArray(selectQuery.values().size());
+        tableConfigErrCounts = new AtomicIntegerArray(selectQuery.values().size());
+        tableTimings = new StageTimings[selectQuery.values().size()];
+        for (int i = 0; i < tableTimings.length; i++) {
+            tableTimings[i] = new StageTimings(config.getSlowRows());
+        }
+
+        if (StringUtils.isNotBlank(config.getRowsExport())) {
+            try {
+                exportRows();
+            } catch (Exception e) {
+                logger.info(INFO_MARKER, "checksql is failed with error\r\n{}", e);
+                return false;
+            }
+            logger.info(INFO_MARKER, "checksql completed");
+            return true;
         }
 
         try {
             testSelectAndPlsqlBlockForAllTables();
         } catch (Exception e) {
             logger.info(INFO_MARKER, "checksql is failed with error\r\n{}", e);
-            return;
+            return false;
         }
         logTableStats();
         logger.info(INFO_MARKER, "checksql completed");
+        return true;
     }
 
-    private void configAppSettings() {
-        appSettings.setTest1Pid(getRandomTest1Pid());
+    /**
+     * PROGRAM_ID is set on connections of test schemas only, so it is not read when the catalog only check does
+     * not connect workers to the test schema. PROGRAM_ID of the source schema is taken from the rows archive
+     * when rows are validated from it
+     *
+     * @param archiveHeader null when rows are not validated from the rows archive
+     */
+    private void configAppSettings(RowArchive.Header archiveHeader) {
+        boolean compiled = PrecheckMode.ONLY != config.getPrecheckMode();
+        if (compiled) {
+            if (archiveHeader != null && archiveHeader.getPid() != null) {
+                appSettings.setTest1Pid(archiveHeader.getPid());
+            } else {
+                appSettings.setTest1Pid(getRandomTest1Pid());
+            }
+        }
 
         PoolDataSourceImpl test1DataSource = (PoolDataSourceImpl) test1JdbcTemplate.getDataSource();
         appSettings.setTest1Schema(test1DataSource.getUser());
 
         if (config.isUseSecondTest()) {
-            appSettings.setTest2Pid(getRandomTest2Pid());
+            if (compiled) {
+                appSettings.setTest2Pid(getRandomTest2Pid());
+            }
 
             PoolDataSourceImpl test2DataSource = (PoolDataSourceImpl) test2JdbcTemplate.getDataSource();
             appSettings.setTest2Schema(test2DataSource.getUser());
@@ -145,47 +278,32 @@ public class CheckSqlExecutor {
     }
 
     private Long getRandomTest1Pid() {
-        Long pid = null;
-        Exception e = null;
-        try {
-            pid = owner1JdbcTemplate.queryForObject(FIND_FIRST_PROGRAM_ID_OLD, Long.class);         
-        } catch (DataAccessException e1) {
-            e = e1;
-        }
-
-        if (pid == null) {
-            try {
-                pid = owner1JdbcTemplate.queryForObject(FIND_FIRST_PROGRAM_ID_NEW, Long.class);
-            } catch (DataAccessException e1) {
-                e = e1;
-            }
-        }
-
-        if (pid == null) {
-            throw new UnexpectedException("[Test1] Can not get a PROGRAM_ID", e);
-        }
-        return pid;
+        return getRandomPid(owner1JdbcTemplate, "1");
     }
 
     private Long getRandomTest2Pid() {
+        return getRandomPid(owner2JdbcTemplate, "2");
+    }
+
+    private Long getRandomPid(JdbcTemplate jdbcTemplate, String testNum) {
         Long pid = null;
         Exception e = null;
         try {
-            pid = owner2JdbcTemplate.queryForObject(FIND_FIRST_PROGRAM_ID_OLD, Long.class);
+            pid = jdbcTemplate.queryForObject(FIND_FIRST_PROGRAM_ID_OLD, Long.class);
         } catch (DataAccessException e1) {
             e = e1;
         }
 
         if (pid == null) {
             try {
-                pid = owner2JdbcTemplate.queryForObject(FIND_FIRST_PROGRAM_ID_NEW, Long.class);
+                pid = jdbcTemplate.queryForObject(FIND_FIRST_PROGRAM_ID_NEW, Long.class);
             } catch (DataAccessException e1) {
                 e = e1;
             }
         }
 
         if (pid == null) {
-            throw new UnexpectedException("[Test2] Can not get a PROGRAM_ID", e);
+            throw new UnexpectedException("[Test" + testNum + "] Can not get a PROGRAM_ID", e);
         }
         return pid;
     }
@@ -207,14 +325,9 @@ public class CheckSqlExecutor {
             tableErrStats.put(plsql.getTableName().toLowerCase(), 0);
         }
 
-        for (SqlError err : sqlErrors) {
-            if (StringUtils.isBlank(err.getTableName())) {
-                continue;
-            }
-            String tableName = err.getTableName().toLowerCase();
-            Integer count = tableErrStats.get(tableName);
-            count++;
-            tableErrStats.put(tableName, count);
+        for (TableNode table : selectQuery.values()) {
+            tableErrStats.merge(table.getTableName().toLowerCase(), tableErrCounts.get(table.getOrdNum() - 1),
+                    Integer::sum);
         }
         logger.info(INFO_MARKER, SUMMARY_MSG,
                 parseUrlToSchemaWithUrlBeforeDot(this.config.getOwner1DbSchema(), this.config.getUrl()));
@@ -233,187 +346,566 @@ public class CheckSqlExecutor {
             }
         }
 
-        if (!configErrors.isEmpty()) {
-            logger.error(ERR_MARKER, LINE_DELIMITER + "Invalid Configuration:");
-        }
-        for (SqlError err : configErrors) {
-            logger.error(ERR_MARKER, err.getTableName() + "." + err.getSqlColName());
+        boolean hasConfigErrors = false;
+        for (TableNode table : selectQuery.values()) {
+            for (int i = 0; i < tableConfigErrCounts.get(table.getOrdNum() - 1); i++) {
+                if (!hasConfigErrors) {
+                    logger.error(ERR_MARKER, LINE_DELIMITER + "Invalid Configuration:");
+                    hasConfigErrors = true;
+                }
+                logger.error(ERR_MARKER, table.getTableName() + "." + table.getSqlColName());
+            }
         }
         logger.info(INFO_MARKER, "");
+
+        if (!targets.isEmpty()) {
+            logTargetStats();
+        }
+
+        if (sqlCatalog != null) {
+            logger.info(INFO_MARKER, "Decided by precheck without compilation: {} failed, {} passed",
+                    precheckFailedCount.get(), precheckPassedCount.get());
+            if (PrecheckMode.ONLY == config.getPrecheckMode()) {
+                logger.info(INFO_MARKER, "Not checked, since the catalog can not decide them: {}",
+                        precheckUndecidedCount.get());
+            }
+            logger.info(INFO_MARKER, "");
+        }
+
+        if (config.isTimings()) {
+            logTimings();
+        }
     }
 
-    private TableValue<Boolean> isSelectStatement(Configuration config, String selectSql) {
-        String viewDdl = wrapSelectAsView(selectSql);
+    /**
+     * Failures of each table in the main test schema and in each additional one, tables without failures
+     * in all schemas are omitted
+     */
+    private void logTargetStats() {
+        SortedMap<String, int[]> targetErrStats = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (TableNode table : selectQuery.values()) {
+            int[] counts = targetErrStats.computeIfAbsent(table.getTableName().toLowerCase(),
+                    tableName -> new int[targets.size() + 1]);
+            counts[0] += tableErrCounts.get(table.getOrdNum() - 1);
+            for (int i = 0; i < targets.size(); i++) {
+                counts[i + 1] += targets.get(i).getTableErrCounts().get(table.getOrdNum() - 1);
+            }
+        }
 
-        boolean viewCreated = false;
-        SqlError sqlErr = null;
-        if (config.isUseSecondTest()) {
-            try {
-                test2JdbcTemplate.update(viewDdl);
-                viewCreated = true;
-            } catch (BadSqlGrammarException e) {
-                sqlErr = new SqlError("CREATE-VIEW2");
-                sqlErr.setErrMsg(e.getMessage());
-                if (e.getSQLException().getCause() != null) {
-                    sqlErr.setShortErrMsg(e.getSQLException().getCause().getMessage());
-                } else {
-                    sqlErr.setShortErrMsg(e.getSQLException().toString());
+        StringBuilder header = new StringBuilder("Failures by test schema (table name, ");
+        header.append(getTestSchema());
+        for (TestTarget target : targets) {
+            header.append(", ").append(target.getSchema());
+        }
+        header.append("):");
+        logger.error(ERR_MARKER, header.toString());
+        for (Map.Entry<String, int[]> tableStat : targetErrStats.entrySet()) {
+            if (Arrays.stream(tableStat.getValue()).anyMatch(cnt -> cnt > 0)) {
+                StringBuilder line = new StringBuilder(tableStat.getKey());
+                for (int cnt : tableStat.getValue()) {
+                    line.append(", ").append(cnt);
                 }
-            } catch (DataAccessException e2) {
-                sqlErr = new SqlError("CREATE-VIEW2");
-                sqlErr.setErrMsg(e2.getMessage());
+                logger.error(ERR_MARKER, line.toString());
             }
-        } else {
-            try {
-                test1JdbcTemplate.update(viewDdl);
-                viewCreated = true;
-            } catch (BadSqlGrammarException e) {
-                sqlErr = new SqlError("CREATE-VIEW1");
-                sqlErr.setErrMsg(e.getMessage());
-                if (e.getSQLException().getCause() != null) {
-                    sqlErr.setShortErrMsg(e.getSQLException().getCause().getMessage());
-                } else {
-                    sqlErr.setShortErrMsg(e.getSQLException().toString());
+        }
+        logger.info(INFO_MARKER, "");
+    }
+
+    private void logTimings() {
+        for (TableNode table : selectQuery.values()) {
+            StageTimings timings = tableTimings[table.getOrdNum() - 1];
+            logger.info(INFO_MARKER, "Timings of {}.{} (stage, count, total ms, p50 ms, p90 ms, p99 ms, max ms):",
+                    table.getTableName(), table.getSqlColName());
+            for (StageTimings.Stage stage : StageTimings.Stage.values()) {
+                if (timings.getCount(stage) == 0) {
+                    continue;
                 }
+                logger.info(INFO_MARKER, "{}, {}, {}, {}, {}, {}, {}", stage.getName(), timings.getCount(stage),
+                        toMillis(timings.getTotalNanos(stage)), toMillis(timings.getPercentileNanos(stage, 50)),
+                        toMillis(timings.getPercentileNanos(stage, 90)),
+                        toMillis(timings.getPercentileNanos(stage, 99)), toMillis(timings.getMaxNanos(stage)));
+            }
 
-            } catch (DataAccessException e) {
-                sqlErr = new SqlError("CREATE-VIEW1");
-                sqlErr.setErrMsg(e.getMessage());
+            List<StageTimings.SlowRow> slowRows = timings.getSlowRows();
+            if (!slowRows.isEmpty()) {
+                logger.info(INFO_MARKER, "Slowest rows ({}, ms):", table.getPrimKeyColName());
+                for (StageTimings.SlowRow slowRow : slowRows) {
+                    logger.info(INFO_MARKER, "{}, {}", slowRow.getEntityId(), toMillis(slowRow.getNanos()));
+                }
             }
+            logger.info(INFO_MARKER, "");
         }
-        if (viewCreated) {
-            StringBuilder sbErrors = new StringBuilder();
-            if (config.isUseSecondTest()) {
-                SqlRowSet errSqlRowSet = test2JdbcTemplate.queryForRowSet(FIND_DB_OBJECT_ERRORS, SELECT_VIEW_NAME);
-                while (errSqlRowSet.next()) {
-                    TableValue<String> errResult = TableValue.createStringErr(errSqlRowSet, false);
-                    if (errResult.hasError()) {
-                        sbErrors.append(errResult.getSqlError().getErrMsg())
-                                .append(LINE_DELIMITER);
-                        viewCreated = false;
-                    } else {
-                        sbErrors.append(errResult.getValue())
-                                .append(LINE_DELIMITER);
-                        viewCreated = false;
+    }
+
+    private String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Rows with the same SQL text are compiled only once per run, other rows (including ones validated by other
+     * workers at the same time) wait for and reuse the result. Each task gets own copy of the error to fill
+     * a row context in. Rows of the batch which compiled the SQL get the full error, the result kept for the rest
+     * of the run is compacted to the error type and short message, so it does not hold the statement text.
+     */
+    private void compileTasks(CheckSqlWorker worker, List<CompileTask> tasks) {
+        ResultCache cache = getResultCache(worker);
+        List<CompletableFuture<TableValue<Boolean>>> futures = new ArrayList<>(tasks.size());
+        Map<String, CompletableFuture<TableValue<Boolean>>> claimedFutures = new HashMap<>();
+        List<CompileTask> notCachedTasks = new ArrayList<>();
+        for (CompileTask task : tasks) {
+            CompletableFuture<TableValue<Boolean>> future = claimedFutures.get(task.getKey());
+            if (future == null) {
+                CompletableFuture<TableValue<Boolean>> newFuture = new CompletableFuture<>();
+                future = compileResults.putIfAbsent(getCompileResultKey(worker, task.getKey()), newFuture);
+                if (future == null) {
+                    future = newFuture;
+                    claimedFutures.put(task.getKey(), future);
+
+                    TableValue<Boolean> result = null;
+                    if (cache != null) {
+                        result = cache.get(task.getKey());
                     }
-                }
-            } else {
-                SqlRowSet errSqlRowSet = test1JdbcTemplate.queryForRowSet(FIND_DB_OBJECT_ERRORS, SELECT_VIEW_NAME);
-                while (errSqlRowSet.next()) {
-                    TableValue<String> errResult = TableValue.createStringErr(errSqlRowSet, false);
-                    if (errResult.hasError()) {
-                        sbErrors.append(errResult.getSqlError().getErrMsg())
-                                .append(LINE_DELIMITER);
-                        viewCreated = false;
+                    if (result == null) {
+                        notCachedTasks.add(task);
                     } else {
-                        sbErrors.append(errResult.getValue())
-                                .append(LINE_DELIMITER);
-                        viewCreated = false;
+                        future.complete(result);
                     }
                 }
             }
-            if(!viewCreated) {
-                sqlErr = new SqlError("VIEW-ERR");
-                sqlErr.setErrMsg(sbErrors.toString().trim());
+            futures.add(future);
+        }
+
+        try {
+            List<CompileResult> results = compile(worker, notCachedTasks);
+            for (int i = 0; i < notCachedTasks.size(); i++) {
+                String key = notCachedTasks.get(i).getKey();
+                CompileResult result = results.get(i);
+                if (result.isCacheable() && cache != null) {
+                    cache.put(key, result, result.getDependencies());
+                } else if (!result.isCacheable()) {
+                    compileResults.remove(getCompileResultKey(worker, key));
+                }
+                claimedFutures.get(key).complete(result);
+            }
+        } catch (RuntimeException e) {
+            for (Map.Entry<String, CompletableFuture<TableValue<Boolean>>> claimed : claimedFutures.entrySet()) {
+                if (!claimed.getValue().isDone()) {
+                    compileResults.remove(getCompileResultKey(worker, claimed.getKey()));
+                    claimed.getValue().completeExceptionally(e);
+                }
             }
+            throw e;
+        }
+
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setResult(copyCompileResult(futures.get(i).join()));
+        }
+        for (Map.Entry<String, CompletableFuture<TableValue<Boolean>>> claimed : claimedFutures.entrySet()) {
+            compileResults.replace(getCompileResultKey(worker, claimed.getKey()), claimed.getValue(),
+                    CompletableFuture.completedFuture(compactCompileResult(claimed.getValue().join())));
         }
-        return new TableValue<Boolean>(viewCreated, sqlErr);
     }
 
-    private void logFullSqlError(SqlError sqlError) {
-        logger.info(DATA_MARKER, "{}", sqlError.toString());
+    private TableValue<Boolean> compactCompileResult(TableValue<Boolean> result) {
+        if (!result.hasError()) {
+            return new TableValue<>(result.getValue(), null);
+        }
+        SqlError sqlErr = new SqlError(result.getSqlError().getErrType(),
+                result.getSqlError().getChecksqlErrorType());
+        sqlErr.setErrMsg(result.getSqlError().getShortErrMsg());
+        return new TableValue<>(result.getValue(), sqlErr);
     }
 
-    private void logSqlError(SqlError sqlError) {
-        if (ChecksqlErrorType.DEFAULT.equals(sqlError.getChecksqlErrorType())) {
-            sqlErrors.add(sqlError);
+    /**
+     * Results of the same SQL differ between test schemas, so they are shared only by workers of one schema
+     */
+    private String getCompileResultKey(CheckSqlWorker worker, String key) {
+        return worker.getTestNum() + "/" + key;
+    }
 
-            logFullSqlError(sqlError);
-            logShortError(sqlError.getTableName(), sqlError.getSqlColName(), sqlError.getEntityIdColName(),
-                    sqlError.getEntityId(), sqlError.getShortErrMsg());
-        } else {
-            configErrors.add(sqlError);
+    /**
+     * Result cache belongs to the main test schema, rows are always compiled in additional test schemas
+     */
+    private ResultCache getResultCache(CheckSqlWorker worker) {
+        if (workers.contains(worker)) {
+            return resultCache;
         }
+        return null;
     }
 
-    private TableValue<Boolean> isPlsqlBlock(Configuration config, String plsqlBlock, String tableName) {
-        String procDdl = wrapBlockAsProc(plsqlBlock, tableName);
+    private List<CompileResult> compile(CheckSqlWorker worker, List<CompileTask> tasks) {
+        if (config.isBulkCompile()) {
+            return compileBulk(worker, tasks);
+        } else if (config.getCompileBatch() > 1) {
+            return compileBatch(worker, tasks);
+        }
 
-        boolean procCreated = false;
-        SqlError sqlErr = null;
-        if (config.isUseSecondTest()) {
-            try {
-                test2JdbcTemplate.update(procDdl);
-                procCreated = true;
-            } catch (BadSqlGrammarException e) {
-                sqlErr = new SqlError("CREATE-PROC2");
-                if (e.getSQLException().getCause() != null) {
-                    sqlErr.setShortErrMsg(e.getSQLException().getCause().getMessage());
-                } else {
-                    sqlErr.setShortErrMsg(e.getSQLException().toString());
+        List<CompileResult> results = new ArrayList<>(tasks.size());
+        for (CompileTask task : tasks) {
+            if (SqlStatementType.SELECT == task.getType() && SelectCheckMode.PARSE == config.getSelectCheckMode()) {
+                results.add(parseSelect(worker, task.getSql()));
+            } else if (SqlStatementType.SELECT == task.getType()) {
+                // Check if a query is Select statement and there are privs with help of creating Oracle View. If
+                // view is created then it is Select statement or there are unhandled errors
+                CompileResult result = createView(worker, worker.getSelectViewName(), task.getSql());
+                recordDependencies(worker, Collections.singletonMap(worker.getSelectViewName(), result));
+                results.add(result);
+            } else {
+                CompileResult result = createProc(worker, worker.getPlsqlProcName(), task.getSql(),
+                        task.getProcVars());
+                recordDependencies(worker, Collections.singletonMap(worker.getPlsqlProcName(), result));
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Each statement of the batch is compiled as own view or procedure, then compile errors of all created
+     * procedures are read by one query
+     */
+    private List<CompileResult> compileBatch(CheckSqlWorker worker, List<CompileTask> tasks) {
+        List<CompileResult> results = new ArrayList<>(tasks.size());
+        Map<String, Integer> createdObjects = new HashMap<>();
+        Map<String, Integer> createdProcs = new HashMap<>();
+        int viewSlot = 0;
+        int procSlot = 0;
+        for (CompileTask task : tasks) {
+            CompileResult result;
+            if (SqlStatementType.SELECT == task.getType() && SelectCheckMode.PARSE == config.getSelectCheckMode()) {
+                result = parseSelect(worker, task.getSql());
+            } else if (SqlStatementType.SELECT == task.getType()) {
+                String viewName = worker.getSelectViewName(++viewSlot);
+                worker.addDropView(viewName);
+                // Compile errors of a view are raised on creation, so there is nothing to read from all_errors
+                result = executeCompile(worker, "CREATE-VIEW", wrapSelectAsView(viewName, task.getSql()));
+                if (result.getValue()) {
+                    createdObjects.put(viewName, results.size());
+                }
+            } else {
+                String procName = worker.getPlsqlProcName(++procSlot);
+                worker.addDropProc(procName);
+                result = executeCompile(worker, "CREATE-PROC",
+                        wrapBlockAsProc(procName, task.getSql(), task.getProcVars()));
+                if (result.getValue()) {
+                    createdObjects.put(procName, results.size());
+                    createdProcs.put(procName, results.size());
                 }
-                sqlErr.setErrMsg(e.getMessage());
-            } catch (DataAccessException e2) {
-                sqlErr = new SqlError("CREATE-PROC2");
-                sqlErr.setErrMsg(e2.getMessage());
             }
-        } else {
-            try {
-                test1JdbcTemplate.update(procDdl);
-                procCreated = true;
-            } catch (BadSqlGrammarException e) {
-                sqlErr = new SqlError("CREATE-PROC1");
-                if (e.getSQLException().getCause() != null) {
-                    sqlErr.setShortErrMsg(e.getSQLException().getCause().getMessage());
-                } else {
-                    sqlErr.setShortErrMsg(e.getSQLException().toString());
+            results.add(result);
+        }
+
+        if (!createdProcs.isEmpty()) {
+            Map<String, StringBuilder> procErrors = new HashMap<>();
+            long startNanos = System.nanoTime();
+            worker.getNamedParamJdbcTemplate().query(FIND_DB_OBJECTS_ERRORS,
+                    new MapSqlParameterSource("names", createdProcs.keySet()), (RowCallbackHandler) rs -> {
+                        procErrors.computeIfAbsent(rs.getString("name"), name -> new StringBuilder())
+                                .append(rs.getString("text"))
+                                .append(", line ")
+                                .append(TableValue.getSourceLine(rs.getInt("line"), true))
+                                .append(LINE_DELIMITER);
+                    });
+            recordStage(worker, StageTimings.Stage.ERRORS, System.nanoTime() - startNanos);
+            for (Map.Entry<String, StringBuilder> procError : procErrors.entrySet()) {
+                SqlError sqlErr = new SqlError("PROC-ERR");
+                sqlErr.setErrMsg(procError.getValue().toString().trim());
+                results.set(createdProcs.get(procError.getKey()), new CompileResult(false, sqlErr, true));
+            }
+        }
+
+        Map<String, CompileResult> compiledObjects = new HashMap<>();
+        for (Map.Entry<String, Integer> createdObject : createdObjects.entrySet()) {
+            compiledObjects.put(createdObject.getKey(), results.get(createdObject.getValue()));
+        }
+        recordDependencies(worker, compiledObjects);
+        return results;
+    }
+
+    /**
+     * Objects referenced by compiled views and procedures are saved with the result to the result cache, so
+     * the result is reused after changes of the test schema which do not touch these objects
+     */
+    private void recordDependencies(CheckSqlWorker worker, Map<String, CompileResult> compiledObjects) {
+        if (!config.isTrackDependencies() || getResultCache(worker) == null) {
+            return;
+        }
+
+        Map<String, Map<String, String>> dependencies = new HashMap<>();
+        for (Map.Entry<String, CompileResult> compiledObject : compiledObjects.entrySet()) {
+            if (compiledObject.getValue().getValue()) {
+                dependencies.put(compiledObject.getKey(), new HashMap<>());
+            }
+        }
+        if (dependencies.isEmpty()) {
+            return;
+        }
+
+        worker.getNamedParamJdbcTemplate().query(FIND_DB_OBJECTS_DEPENDENCIES,
+                new MapSqlParameterSource("names", dependencies.keySet()), (RowCallbackHandler) rs -> {
+                    String ddlTime = rs.getString("last_ddl_time");
+                    dependencies.get(rs.getString("name")).put(
+                            getDependencyKey(rs.getString("referenced_type"), rs.getString("referenced_owner"),
+                                    rs.getString("referenced_name")),
+                            ddlTime == null ? NO_DDL_TIME : ddlTime);
+                });
+        for (Map.Entry<String, Map<String, String>> objectDependencies : dependencies.entrySet()) {
+            compiledObjects.get(objectDependencies.getKey()).setDependencies(objectDependencies.getValue());
+        }
+    }
+
+    /**
+     * Current DDL time of each of the dependencies. Oracle records a dependency on a non-existent object when
+     * a name is resolved to an object of other schema, so such dependency is broken by any object with the name
+     */
+    private Map<String, String> getCurrentDdlTimes(CheckSqlWorker worker, Set<String> dependencies) {
+        Map<String, String> ddlTimes = new HashMap<>();
+        Set<String> owners = new HashSet<>();
+        for (String dependency : dependencies) {
+            owners.add(dependency.split(Pattern.quote(DEPENDENCY_KEY_DELIMITER), 3)[1]);
+        }
+        if (owners.isEmpty()) {
+            return ddlTimes;
+        }
+
+        worker.getNamedParamJdbcTemplate().query(FIND_OBJECTS_DDL_TIME,
+                new MapSqlParameterSource("owners", owners), (RowCallbackHandler) rs -> {
+                    ddlTimes.put(getDependencyKey(rs.getString("object_type"), rs.getString("owner"),
+                            rs.getString("object_name")), rs.getString("last_ddl_time"));
+                    ddlTimes.put(getDependencyKey(NON_EXISTENT_TYPE, rs.getString("owner"),
+                            rs.getString("object_name")), EXISTING_OBJECT);
+                });
+        for (String dependency : dependencies) {
+            if (dependency.startsWith(NON_EXISTENT_TYPE + DEPENDENCY_KEY_DELIMITER)) {
+                ddlTimes.putIfAbsent(dependency, NO_DDL_TIME);
+            }
+        }
+        return ddlTimes;
+    }
+
+    private String getDependencyKey(String type, String owner, String name) {
+        return type + DEPENDENCY_KEY_DELIMITER + owner + DEPENDENCY_KEY_DELIMITER + name;
+    }
+
+    /**
+     * Whole batch is sent as one CLOB to a PL/SQL block which compiles each statement and returns compile errors
+     * of all statements, so the batch costs one round trip to the test DB
+     */
+    private List<CompileResult> compileBulk(CheckSqlWorker worker, List<CompileTask> tasks) {
+        List<CompileResult> results = new ArrayList<>(tasks.size());
+        List<String> errTypes = new ArrayList<>(tasks.size());
+        StringBuilder batch = new StringBuilder();
+        int viewSlot = 0;
+        int procSlot = 0;
+        for (CompileTask task : tasks) {
+            if (SqlStatementType.SELECT == task.getType() && SelectCheckMode.PARSE == config.getSelectCheckMode()) {
+                appendBulkEntry(batch, BULK_PARSE_SELECT, "", task.getSql());
+                errTypes.add("PARSE-SELECT");
+            } else if (SqlStatementType.SELECT == task.getType()) {
+                String viewName = worker.getSelectViewName(++viewSlot);
+                worker.addDropView(viewName);
+                appendBulkEntry(batch, BULK_CREATE_VIEW, viewName, wrapSelectAsView(viewName, task.getSql()));
+                errTypes.add("CREATE-VIEW");
+            } else {
+                String procName = worker.getPlsqlProcName(++procSlot);
+                worker.addDropProc(procName);
+                appendBulkEntry(batch, BULK_CREATE_PROC, procName,
+                        wrapBlockAsProc(procName, task.getSql(), task.getProcVars()));
+                errTypes.add("CREATE-PROC");
+            }
+            results.add(new CompileResult(true, null, true));
+        }
+
+        if (tasks.isEmpty()) {
+            return results;
+        }
+
+        String bulkResult;
+        try {
+            bulkResult = worker.getJdbcTemplate().execute(bulkCompileBlock, (CallableStatementCallback<String>) cs -> {
+                cs.setClob(1, new StringReader(batch.toString()), batch.length());
+                cs.registerOutParameter(2, Types.CLOB);
+                cs.execute();
+                Clob resultClob = cs.getClob(2);
+                if (resultClob == null) {
+                    return "";
                 }
+                String value = resultClob.getSubString(1, (int) resultClob.length());
+                resultClob.free();
+                return value;
+            });
+        } catch (DataAccessException e) {
+            for (int i = 0; i < tasks.size(); i++) {
+                SqlError sqlErr = new SqlError(errTypes.get(i) + worker.getTestNum());
                 sqlErr.setErrMsg(e.getMessage());
-            } catch (DataAccessException e) {
-                sqlErr = new SqlError("CREATE-PROC1");
-                sqlErr.setErrMsg(e.getMessage());
+                results.set(i, new CompileResult(false, sqlErr, false));
             }
+            return results;
         }
 
+        Map<Integer, StringBuilder> procErrors = new HashMap<>();
+        int pos = 0;
+        while (pos < bulkResult.length()) {
+            String[] fields = new String[4];
+            for (int i = 0; i < fields.length; i++) {
+                int sep = bulkResult.indexOf(BULK_FIELD_DELIMITER, pos);
+                fields[i] = bulkResult.substring(pos, sep);
+                pos = sep + 1;
+            }
+            int index = Integer.parseInt(fields[0]) - 1;
+            int code = Integer.parseInt(fields[2]);
+            int len = Integer.parseInt(fields[3]);
+            String text = bulkResult.substring(pos, pos + len);
+            pos += len;
+
+            if (BULK_ERROR.equals(fields[1])) {
+                // Errors are classified the same way as errors of a statement executed from JDBC
+                DataAccessException e = worker.getJdbcTemplate().getExceptionTranslator()
+                        .translate("Bulk compile", null, new SQLException(text, null, -code));
+                SqlError sqlErr = new SqlError(errTypes.get(index) + worker.getTestNum());
+                sqlErr.setErrMsg(text);
+                sqlErr.setShortErrMsg(text);
+                results.set(index, new CompileResult(false, sqlErr, e instanceof BadSqlGrammarException));
+            } else {
+                procErrors.computeIfAbsent(index, i -> new StringBuilder())
+                        .append(text)
+                        .append(", line ")
+                        .append(TableValue.getSourceLine(code, true))
+                        .append(LINE_DELIMITER);
+            }
+        }
+        for (Map.Entry<Integer, StringBuilder> procError : procErrors.entrySet()) {
+            SqlError sqlErr = new SqlError("PROC-ERR");
+            sqlErr.setErrMsg(procError.getValue().toString().trim());
+            results.set(procError.getKey(), new CompileResult(false, sqlErr, true));
+        }
+        return results;
+    }
 
-        if (procCreated) {
-            StringBuilder sbErrors = new StringBuilder();
-            if (config.isUseSecondTest()) {
-                SqlRowSet errSqlRowSet = test2JdbcTemplate.queryForRowSet(FIND_DB_OBJECT_ERRORS, PLSQL_PROC_NAME);
-                while (errSqlRowSet.next()) {
-                    TableValue<String> errResult = TableValue.createStringErr(errSqlRowSet, true);
-                    if (errResult.hasError()) {
-                        sbErrors.append(errResult.getSqlError().getErrMsg())
-                                .append(LINE_DELIMITER);
-                        procCreated = false;
-                    } else {
-                        sbErrors.append(errResult.getValue())
-                                .append(LINE_DELIMITER);
-                        procCreated = false;
-                    }
-                }
+    private void appendBulkEntry(StringBuilder batch, String kind, String objectName, String sql) {
+        batch.append(kind).append(BULK_FIELD_DELIMITER)
+             .append(objectName).append(BULK_FIELD_DELIMITER)
+             .append(sql.length()).append(BULK_FIELD_DELIMITER)
+             .append(sql);
+    }
+
+    private CompileResult createView(CheckSqlWorker worker, String viewName, String selectSql) {
+        worker.addDropView(viewName);
+        CompileResult result = executeCompile(worker, "CREATE-VIEW", wrapSelectAsView(viewName, selectSql));
+        if (!result.getValue()) {
+            return result;
+        }
+        return readCompileErrors(worker, viewName, false, "VIEW-ERR");
+    }
 
+    /**
+     * Select is parsed on the server without creating a DB object, so there is no DDL, implicit commit and
+     * dictionary changes. Unlike a view, privileges granted via roles are enough to pass this check
+     */
+    private CompileResult parseSelect(CheckSqlWorker worker, String selectSql) {
+        return executeCompile(worker, "PARSE-SELECT", PARSE_SELECT, new SqlParameterValue(Types.CLOB, selectSql));
+    }
+
+    private CompileResult createProc(CheckSqlWorker worker, String procName, String plsqlBlock, String procVars) {
+        worker.addDropProc(procName);
+        CompileResult result = executeCompile(worker, "CREATE-PROC", wrapBlockAsProc(procName, plsqlBlock, procVars));
+        if (!result.getValue()) {
+            return result;
+        }
+        return readCompileErrors(worker, procName, true, "PROC-ERR");
+    }
+
+    private CompileResult executeCompile(CheckSqlWorker worker, String errType, String sql, Object... args) {
+        boolean created = false;
+        boolean cacheable = true;
+        SqlError sqlErr = null;
+        try {
+            if (args.length == 0) {
+                worker.getJdbcTemplate().update(sql);
             } else {
-                SqlRowSet errSqlRowSet = test1JdbcTemplate.queryForRowSet(FIND_DB_OBJECT_ERRORS, PLSQL_PROC_NAME);
-                while (errSqlRowSet.next()) {
-                    TableValue<String> errResult = TableValue.createStringErr(errSqlRowSet, true);
-                    if (errResult.hasError()) {
-                        sbErrors.append(errResult.getSqlError().getErrMsg())
-                                .append(LINE_DELIMITER);
-                        procCreated = false;
-                    } else {
-                        sbErrors.append(errResult.getValue())
-                                .append(LINE_DELIMITER);
-                        procCreated = false;
-                    }
-                }
+                worker.getJdbcTemplate().update(sql, args);
+            }
+            created = true;
+        } catch (BadSqlGrammarException e) {
+            sqlErr = new SqlError(errType + worker.getTestNum());
+            sqlErr.setErrMsg(e.getMessage());
+            if (e.getSQLException().getCause() != null) {
+                sqlErr.setShortErrMsg(e.getSQLException().getCause().getMessage());
+            } else {
+                sqlErr.setShortErrMsg(e.getSQLException().toString());
             }
-            if(!procCreated) {
-                sqlErr = new SqlError("PROC-ERR");
-                sqlErr.setErrMsg(sbErrors.toString().trim());
+        } catch (DataAccessException e) {
+            sqlErr = new SqlError(errType + worker.getTestNum());
+            sqlErr.setErrMsg(e.getMessage());
+            cacheable = false;
+        }
+        return new CompileResult(created, sqlErr, cacheable);
+    }
+
+    private CompileResult readCompileErrors(CheckSqlWorker worker, String objectName, boolean isPlSqlBlock,
+            String errType) {
+        boolean compiled = true;
+        SqlError sqlErr = null;
+        StringBuilder sbErrors = new StringBuilder();
+        long startNanos = System.nanoTime();
+        SqlRowSet errSqlRowSet = worker.getJdbcTemplate().queryForRowSet(FIND_DB_OBJECT_ERRORS, objectName);
+        recordStage(worker, StageTimings.Stage.ERRORS, System.nanoTime() - startNanos);
+        while (errSqlRowSet.next()) {
+            TableValue<String> errResult = TableValue.createStringErr(errSqlRowSet, isPlSqlBlock);
+            if (errResult.hasError()) {
+                sbErrors.append(errResult.getSqlError().getErrMsg())
+                        .append(LINE_DELIMITER);
+            } else {
+                sbErrors.append(errResult.getValue())
+                        .append(LINE_DELIMITER);
             }
+            compiled = false;
+        }
+        if (!compiled) {
+            sqlErr = new SqlError(errType);
+            sqlErr.setErrMsg(sbErrors.toString().trim());
+        }
+        return new CompileResult(compiled, sqlErr, true);
+    }
+
+    private void recordStage(CheckSqlWorker worker, StageTimings.Stage stage, long nanos) {
+        if (worker.getTimings() != null) {
+            worker.getTimings().record(stage, nanos);
+        }
+    }
+
+    private TableValue<Boolean> copyCompileResult(TableValue<Boolean> result) {
+        if (result.hasError()) {
+            return new TableValue<>(result.getValue(), new SqlError(result.getSqlError()));
+        } else {
+            return new TableValue<>(result.getValue(), null);
+        }
+    }
+
+    private void logFullSqlError(SqlError sqlError) {
+        logger.info(DATA_MARKER, "{}", sqlError.toString());
+    }
+
+    private synchronized void logSqlError(SqlError sqlError, TableNode sql) {
+        if (ChecksqlErrorType.DEFAULT.equals(sqlError.getChecksqlErrorType())) {
+            tableErrCounts.incrementAndGet(sql.getOrdNum() - 1);
+
+            logFullSqlError(sqlError);
+            logShortError(sqlError.getTableName(), sqlError.getSqlColName(), sqlError.getEntityIdColName(),
+                    sqlError.getEntityId(), sqlError.getShortErrMsg());
+        } else {
+            tableConfigErrCounts.incrementAndGet(sql.getOrdNum() - 1);
+        }
+    }
+
+    private void logTargetSqlError(TestTarget target, SqlError sqlError, TableNode sql) {
+        target.getTableErrCounts().incrementAndGet(sql.getOrdNum() - 1);
+
+        synchronized (this) {
+            logFullSqlError(sqlError);
+            logShortError(sqlError.getTableName(), sqlError.getSqlColName(), sqlError.getEntityIdColName(),
+                    sqlError.getEntityId(), "[" + target.getSchema() + "] " + sqlError.getShortErrMsg());
         }
-        return new TableValue<Boolean>(procCreated, sqlErr);
     }
 
     private boolean isSelectStatement(String statement) {
@@ -441,23 +933,15 @@ public class CheckSqlExecutor {
         return outPlsql.toString();
     }
 
-    private String replaceBindVars(String sql, String tableName, String sqlColName, String entityId) {
-        if ("imp_data_type".equalsIgnoreCase(tableName)) {
-            sql = replaceImpDataTypeParamByImpDataTypeId(sql, entityId);
-            sql = replaceStaticImpDataTypeParam(sql);
-        } else if ("imp_entity".equalsIgnoreCase(tableName)) {
-            sql = replaceImpEntityVars(sql);
-            sql = replaceImpEntityParamsByEntityId(sql, entityId);
-        } else if ("imp_spec".equalsIgnoreCase(tableName)) {
-            sql = replaceImpSpecExtProcParams(sql);
-        } else if ("rule".equalsIgnoreCase(tableName) && "sql_text".equalsIgnoreCase(sqlColName)) {
-            sql = replaceRuleParams(sql, entityId);
-        } else if ("wf_template_step".equalsIgnoreCase(tableName) || "wf_step".equalsIgnoreCase(tableName)) {
-            sql = replaceWfStepParams(sql);
-        } else if ("imp_data_map".equalsIgnoreCase(tableName)) {
-            sql = replaceImpDataMapVars(sql);
-        } else if ("config_field".equalsIgnoreCase(tableName)) {
-            sql = replaceConfigFieldVars(sql);
+    private String replaceBindVars(String sql, TableNode node, String entityId) {
+        BindRules rules = node.getBindRules();
+        if (rules.getEntityParamsSql() == null) {
+            sql = rules.getRewriter().rewrite(sql);
+        } else {
+            sql = getEntityRewriter(node, entityId).rewrite(sql);
+        }
+        if (rules.isReplaceSqlParams()) {
+            sql = replaceSqlParams(sql);
         }
 
         sql = replaceDateBindVars(sql);
@@ -465,104 +949,58 @@ public class CheckSqlExecutor {
         return sql;
     }
 
-    private String replaceImpEntityVars(String sql) {
-        sql = sql.replaceAll(VALUE_BIND_VAR, "v_imp_entity");
-        sql = sql.replaceAll(VALUE_BIND_VAR.toLowerCase(), "v_imp_entity");
-        return sql;
+    private String replaceBindVarsWithAssignmentOperator(String sql, BindRules rules) {
+        return BIND_VAR_AND_ASSIGNMENT_OPERATOR_PATTERN.matcher(sql)
+                                                       .replaceAll(Matcher.quoteReplacement(rules.getAssignVar() + " :="));
     }
 
-    private String replaceConfigFieldVars(String sql) {
-        sql = sql.replaceAll(VALUE_BIND_VAR_RSTR, "v_ret_str");
-        sql = sql.replaceAll(VALUE_BIND_VAR_RSTR.toLowerCase(), "v_ret_str");
-        return sql;
-    }
-
-    private String replaceImpDataMapVars(String sql) {
-        sql = sql.replaceAll(VALUE_BIND_VAR, "v_ret_str");
-        sql = sql.replaceAll(VALUE_BIND_VAR.toLowerCase(), "v_ret_str");
-        return sql;
-    }
-
-    private String replaceBindVarsWithAssignmentOperator(String sql, String tableName) {
-        if ("imp_entity".equalsIgnoreCase(tableName)) {
-            return sql.replaceAll(BIND_VAR_AND_ASSIGNMENT_OPERATOR_REGEXP, BIND_VAR_REPLACEMENT_IMP_ENTITY);
-        } else {
-            return sql.replaceAll(BIND_VAR_AND_ASSIGNMENT_OPERATOR_REGEXP, BIND_VAR_REPLACEMENT);
+    private String replaceSqlParams(String sql) {
+        BindVarRewriter rewriter = new BindVarRewriter(false);
+        for (String param : SqlParser.getParams(sql)) {
+            rewriter.add(":" + param, "0");
         }
+        return rewriter.rewrite(sql);
     }
 
-    private String replaceWfStepParams(String sql) {
-        String newSql = new String(sql);
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":wf_workflow_id"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":key"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":subkey"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":wpkey"), "0");
-        return newSql;
-    }
-
-    private String replaceRuleParams(String sql, String entityId) {
-        List<String> params = owner1JdbcTemplate.queryForList(FIND_RULE_PARAM_SQL_PARAM_BY_ENTITY_ID,
-                String.class, entityId);
-        String newSql = new String(sql);
-        for (String param : params) {
-            if (StringUtils.isNotBlank(param)) {
-                if (param.startsWith(":")) {
-                    newSql = newSql.replaceAll("(?i)" + Pattern.quote(param), "0");
-                } else {
-                    newSql = newSql.replaceAll("(?i)" + Pattern.quote(":" + param), "0");
+    /**
+     * Rewriter depends on static rules of the table and parameters of the entity only, so it is compiled once
+     * per distinct parameter list of the table and is shared by all entities with these parameters
+     */
+    private BindVarRewriter getEntityRewriter(TableNode node, String entityId) {
+        List<String> params = getEntityParams(node.getBindRules().getEntityParamsSql(), entityId);
+        return entityRewriters.computeIfAbsent(node.getOrdNum() + "/" + String.join("\n", params), key -> {
+            BindRules rules = node.getBindRules();
+            BindVarRewriter rewriter = new BindVarRewriter(rules.isIgnoreCase());
+            if (!rules.isEntityParamsFirst()) {
+                rewriter.addAll(rules.getRewriter());
+            }
+            for (String param : params) {
+                if (StringUtils.isNotBlank(param)) {
+                    rewriter.add(param.startsWith(":") ? param : ":" + param, rules.getEntityParamValue(param));
                 }
             }
-        }
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":return_str"), "v_ret_str");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":id_num"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":pk"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":ln"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":parent_id"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":child_id"), "0");
-        newSql = newSql.replaceAll("(?i)" + Pattern.quote(":imp_run_id"), "0");
-        return newSql;
-    }
-
-    private String replaceImpSpecExtProcParams(String sql) {
-        List<String> params = SqlParser.getParams(sql);
-        String newSql = new String(sql);
-        for (String param : params) {
-            newSql = newSql.replaceAll(":" + param, "0");
-        }
-        return newSql;
+            if (rules.isEntityParamsFirst()) {
+                rewriter.addAll(rules.getRewriter());
+            }
+            return rewriter.compile();
+        });
     }
 
-    private String replaceImpEntityParamsByEntityId(String sql, String entityId) {
-        List<String> sqlParams = owner1JdbcTemplate.queryForList(FIND_IMP_ENTITY_PARAM_SQL_PARAM_BY_ENTITY_ID,
-                String.class, entityId);
-        String newSql = new String(sql);
-        for (String sqlParam : sqlParams) {
-            if (StringUtils.isNotBlank(sqlParam)) {
-                newSql = newSql.replaceAll(":" + sqlParam, "0");
-            }
-        }
-        return newSql;
+    /**
+     * Parameters of all entities are loaded by one query on first use and then are taken from memory
+     * for each validated row
+     */
+    private List<String> getEntityParams(String paramsSql, String entityId) {
+        Map<String, List<String>> params = entityParams.computeIfAbsent(paramsSql, this::loadEntityParams);
+        return params.getOrDefault(entityId, Collections.emptyList());
     }
 
-    private String replaceImpDataTypeParamByImpDataTypeId(String sql, String impDataTypeId) {
-        List<String> sqlParams = owner1JdbcTemplate.queryForList(
-                FIND_IMP_DATA_TYPE_PARAM_SQL_PARAM_BY_IMP_DATA_TYPE_ID,
-                String.class, impDataTypeId);
-        String newSql = new String(sql);
-        for (String sqlParam : sqlParams) {
-            if (StringUtils.isNotBlank(sqlParam)) {
-                if ("V_TABLE".equals(sqlParam) || "TABLE_NAME".equals(sqlParam)) {
-                    newSql = newSql.replaceAll(":" + sqlParam, "xitor");
-                } else if ("V_KEY_FIELD".equals(sqlParam) || "V_DISPLAY_FIELD".equals(sqlParam) || "KEY_FIELD".equals(sqlParam)) {
-                    newSql = newSql.replaceAll(":" + sqlParam, "xitor_id");
-                } else if ("COLUMN_NAME".equals(sqlParam)) {
-                    newSql = newSql.replaceAll(":" + sqlParam, "xitor_key");
-                } else {
-                    newSql = newSql.replaceAll(":" + sqlParam, "0");
-                }
-            }
-        }
-        return newSql;
+    private Map<String, List<String>> loadEntityParams(String paramsSql) {
+        Map<String, List<String>> params = new HashMap<>();
+        owner1JdbcTemplate.query(paramsSql, (RowCallbackHandler) rs -> {
+            params.computeIfAbsent(rs.getString(1), entityId -> new ArrayList<>()).add(rs.getString(2));
+        });
+        return params;
     }
 
     private String wrapBeginEndIfNeed(String entityBlock) {
@@ -585,32 +1023,30 @@ public class CheckSqlExecutor {
         return !isSelectStatement(val);
     }
 
-    private String wrapBlockAsProc(String entityBlock, String tableName) {
+    private String wrapBlockAsProc(String procName, String entityBlock, String procVars) {
         StringBuilder ddl = new StringBuilder("create or replace procedure ");
-        ddl.append(PLSQL_PROC_NAME);
-        if ("imp_entity".equalsIgnoreCase(tableName)) {
-            ddl.append(" as\r\n v_imp_entity list_id;\r\nbegin\r\n");
-        } else {
-            ddl.append(" as\r\n v_ret_str varchar2(1000);\r\nbegin\r\n");
-        }
+        ddl.append(procName);
+        ddl.append(" as\r\n");
+        ddl.append(" ");
+        ddl.append(procVars);
+        ddl.append("\r\nbegin\r\n");
         ddl.append(entityBlock);
         ddl.append("\r\nend ");
-        ddl.append(PLSQL_PROC_NAME);
+        ddl.append(procName);
         ddl.append(";");
         return ddl.toString();
     }
 
-    private String wrapSelectAsView(String selectQuery) {
+    private String wrapSelectAsView(String viewName, String selectQuery) {
         StringBuilder ddl = new StringBuilder("create or replace view ");
-        ddl.append(SELECT_VIEW_NAME);
+        ddl.append(viewName);
         ddl.append(" as\r\n ");
         ddl.append(selectQuery);
         return ddl.toString();
     }
 
     private String replaceDateBindVars(String sql) {
-        Pattern p = Pattern.compile("to_date[(]{1}\\s*:\\w*\\s*,\\s*'[my]{2}[/.]{1}[dm]{2}[/.][y]{2,4}'[)]{1}");
-        Matcher m = p.matcher(sql.toLowerCase());
+        Matcher m = DATE_BIND_VAR_PATTERN.matcher(sql.toLowerCase());
         if (m.find()) {
             sql = m.replaceAll("to_date('01/01/1990','MM/DD/YYYY')");
         }
@@ -618,7 +1054,7 @@ public class CheckSqlExecutor {
     }
 
     private String replaceNonDateBindVars(String sql) {
-        return SqlParser.replaceBindVars(sql, "0");
+        return SqlParser.replaceBindVars(sql, BIND_VAR_VALUE);
     }
 
     private String removeSemicolonAtTheEnd(String sql) {
@@ -629,28 +1065,21 @@ public class CheckSqlExecutor {
         return newSql;
     }
 
-    private String replaceStaticImpDataTypeParam(String sql) {
-        sql = sql.replaceAll(":ENTITY_PK", "0");
-        sql = sql.replaceAll(":VALUE", "0");
-        sql = sql.replaceAll(":\\[USER_ID\\]", "0");
-        sql = sql.replaceAll(":\\[PROGRAM_ID\\]", "0");
-        sql = sql.replaceAll("\\[DATE_FORMAT\\]", "p");
-        sql = sql.replaceAll("\\[COLUMN_NAME\\]", "p");
-        sql = sql.replaceAll(":TABLE_NAME", "xitor");
-
-        sql = sql.replaceAll(":\\[ENTITY_ID\\]", "0");
-        sql = sql.replaceAll("\\[USER_ID\\]", "0");
-        sql = sql.replaceAll("\\[PROGRAM_ID\\]", "0");
-        return sql;
-    }
-
-    private TableValue<SqlRowSet> getSqlRowSetData(CheckSqlQuery query) {
-        SqlRowSet sqlRowSet = null;
+    /**
+     * Streams rows of the query to the handler while they are fetched, so neither whole result nor CLOBs of
+     * all rows are kept in memory
+     */
+    private SqlError fetchSqlRowSetData(CheckSqlQuery query, String querySql, Consumer<SqlRowSet> rowHandler) {
         SqlError sqlErr = null;
         try {
-            sqlRowSet = owner1JdbcTemplate.queryForRowSet(query.getSql());
+            owner1JdbcTemplate.query(querySql, (ResultSetExtractor<Void>) rs -> {
+                SqlRowSet sqlRowSet = new ResultSetWrappingSqlRowSet(rs);
+                while (sqlRowSet.next()) {
+                    rowHandler.accept(sqlRowSet);
+                }
+                return null;
+            });
         } catch (BadSqlGrammarException e) {
-            sqlRowSet = null;
             sqlErr = new SqlError(query.getQueryType() + "-ENTITY", ChecksqlErrorType.CONFIG);
             if (e.getSQLException().getCause() != null) {
                 sqlErr.setShortErrMsg(e.getSQLException().getCause().getMessage());
@@ -661,257 +1090,805 @@ public class CheckSqlExecutor {
             sqlErr.setTableName(query.getTableName());
             sqlErr.setSqlColName(query.getSqlColName());
             sqlErr.setEntityIdColName(query.getPrimKeyColName());
-            sqlErr.setQuery(query.getSql());
+            sqlErr.setQuery(querySql);
         } catch (DataAccessException e1) {
-            sqlRowSet = null;
             sqlErr = new SqlError(query.getQueryType() + "-ENTITY", ChecksqlErrorType.CONFIG);
             sqlErr.setErrMsg(e1.getMessage());
             sqlErr.setTableName(query.getTableName());
             sqlErr.setSqlColName(query.getSqlColName());
             sqlErr.setEntityIdColName(query.getPrimKeyColName());
-            sqlErr.setQuery(query.getSql());
+            sqlErr.setQuery(querySql);
         }
-        return new TableValue<SqlRowSet>(sqlRowSet, sqlErr);
+        return sqlErr;
     }
 
-    private SqlError testSelectStatementPart(SqlRowSet value, TableNode sel) throws Exception {
-
-        TableValue<String> entityId = TableValue.createString(value, sel.getPrimKeyColName());
-        TableValue<String> entitySql = TableValue.createString(value, sel.getSqlColName());
+    private TableValue<CompileTask> prepareSelectPart(TableRow value, SqlAnalysis analysis, TableNode sel) {
 
         // Remove unavailable statements of SELECT
-        String selectSql = new String(entitySql.getValue());
+        String selectSql = new String(value.getSql());
 
-        try {
-            if (selectQuery.valueByName("IMP_ENTITY").getTableName().equalsIgnoreCase(sel.getTableName())
-                    && isPlsqlBlock(selectSql)) {
-                return null;
-            }
-        } catch (Exception e) {
-            selectSql = new String(entitySql.getValue());
+        if (sel.getBindRules().isSkipPlsqlInSelect() && isPlsqlBlock(selectSql)) {
+            return null;
         }
 
-        try {
-            if (selectQuery.valueByName("IMP_DATA_TYPE_PARAM").getTableName().equalsIgnoreCase(sel.getTableName())) {
-                selectSql = replaceStaticImpDataTypeParam(selectSql);
-            }
-        } catch (Exception e) {
-            selectSql = new String(entitySql.getValue());
-        }
+        selectSql = sel.getBindRules().getSelectRewriter().rewrite(selectSql);
 
         if (selectSql.contains("?")) {
             selectSql = selectSql.replace("?", ":p");
         }
+
+        // Parse of the row text made on recognizing is reused while the text is not changed above
+        SqlAnalysis selectAnalysis = analysis;
+        if (!selectSql.equals(analysis.getSqlText())) {
+            selectAnalysis = new SqlAnalysis(selectSql);
+        }
+
+        boolean hasDateBindVars = DATE_BIND_VAR_PATTERN.matcher(selectSql.toLowerCase()).find();
         try {
-            selectSql = SqlParser.removeIntoClause(selectSql);
+            if (hasDateBindVars) {
+                selectSql = selectAnalysis.removeIntoClause();
+            } else {
+                selectSql = selectAnalysis.removeIntoClauseAndReplaceBindVars(BIND_VAR_VALUE);
+            }
         } catch (Exception e) {
             SqlError sqlErr = new SqlError("SELECT-INTO-CLAUSE");
             sqlErr.setErrMsg(e.getMessage());
             sqlErr.setTableName(sel.getTableName());
             sqlErr.setEntityIdColName(sel.getPrimKeyColName());
             sqlErr.setSqlColName(sel.getSqlColName());
-            sqlErr.setEntityId(entityId.getValue());
+            sqlErr.setEntityId(value.getEntityId());
             sqlErr.setTable(sel.getOrdNum());
             sqlErr.setRow(value.getRow());
 
-            return sqlErr;
+            return new TableValue<CompileTask>(sqlErr);
         }
 
         selectSql = removeSemicolonAtTheEnd(selectSql);
-        selectSql = replaceDateBindVars(selectSql);
         try {
-            selectSql = replaceNonDateBindVars(selectSql);
+            if (hasDateBindVars) {
+                selectSql = replaceDateBindVars(selectSql);
+                selectSql = replaceNonDateBindVars(selectSql);
+            }
         } catch (SqlParsingException e) {
             SqlError sqlErr = new SqlError("REPLACE-BIND-VARS");
             sqlErr.setTableName(sel.getTableName());
             sqlErr.setEntityIdColName(sel.getPrimKeyColName());
             sqlErr.setSqlColName(sel.getSqlColName());
-            sqlErr.setEntityId(entityId.getValue());
+            sqlErr.setEntityId(value.getEntityId());
             sqlErr.setQuery(selectSql);
-            sqlErr.setOriginalQuery(entitySql.getValue());
+            sqlErr.setOriginalQuery(value.getSql());
             sqlErr.setTable(sel.getOrdNum());
             sqlErr.setRow(value.getRow());
             sqlErr.setErrMsg("Can not parse a SELECT to replace bind variables\r\n" + selectSql);
             sqlErr.setShortErrMsg("Can not parse a SELECT to replace bind variables");
 
-            return sqlErr;
+            return new TableValue<CompileTask>(sqlErr);
         }
 
         selectSql = "select 1 as val from (\r\n" + selectSql + "\r\n)";
-        // Check if a query is Select statement and there are privs with help of creating Oracle View. If view
-        // is created then it is Select statement or there are unhandled errors
-        TableValue<Boolean> isSelectResult = isSelectStatement(config, selectSql);
-        dropView = true;
-        if (isSelectResult.hasError()) {
-            isSelectResult.getSqlError().setTableName(sel.getTableName());
-            isSelectResult.getSqlError().setEntityIdColName(sel.getPrimKeyColName());
-            isSelectResult.getSqlError().setSqlColName(sel.getSqlColName());
-            isSelectResult.getSqlError().setEntityId(entityId.getValue());
-            isSelectResult.getSqlError().setQuery(selectSql);
-            isSelectResult.getSqlError().setOriginalQuery(entitySql.getValue());
-            isSelectResult.getSqlError().setTable(sel.getOrdNum());
-            isSelectResult.getSqlError().setRow(value.getRow());
-
-            return isSelectResult.getSqlError();
-        }
-
-        return null;
+        return new TableValue<>(new CompileTask(SqlStatementType.SELECT, selectSql, null,
+                ResultCache.getKey(config.getSelectCheckMode().name(), selectSql)));
     }
 
-    private SqlError testPlsqlBlocksPart(SqlRowSet value, TableNode plsql) {
+    private TableValue<CompileTask> preparePlsqlPart(TableRow value, TableNode plsql) {
 
-        TableValue<String> entityId = TableValue.createString(value, plsql.getPrimKeyColName());
-        TableValue<String> entityBlock = TableValue.createString(value, plsql.getSqlColName());
-
-        if (isSelectStatement(entityBlock.getValue())) {
+        if (isSelectStatement(value.getSql())) {
             // In some cases, the table column can contain PLSQL blocks and SELECT statements
             return null;
         }
 
-        String plsqlBlock = wrapBeginEndIfNeed(entityBlock.getValue());
-        plsqlBlock = replaceBindVarsWithAssignmentOperator(plsqlBlock, plsql.getTableName());
+        String plsqlBlock = wrapBeginEndIfNeed(value.getSql());
+        plsqlBlock = replaceBindVarsWithAssignmentOperator(plsqlBlock, plsql.getBindRules());
         plsqlBlock = removeRowWithValueBindVarIfNeed(plsqlBlock);
         try {
-            plsqlBlock = replaceBindVars(plsqlBlock, plsql.getTableName(), plsql.getSqlColName(),
-                    entityId.getValue());
+            plsqlBlock = replaceBindVars(plsqlBlock, plsql, value.getEntityId());
         } catch (Exception e) {
             SqlError err = new SqlError("PLSQL-REPLACE-BIND");
             err.setTableName(plsql.getTableName());
             err.setEntityIdColName(plsql.getPrimKeyColName());
             err.setSqlColName(plsql.getSqlColName());
-            err.setEntityId(entityId.getValue());
+            err.setEntityId(value.getEntityId());
             err.setQuery(plsqlBlock);
-            err.setOriginalQuery(entityBlock.getValue());
+            err.setOriginalQuery(value.getSql());
             err.setTable(plsql.getOrdNum());
             err.setRow(value.getRow());
             err.setErrMsg(e.getMessage());
 
-            return err;
+            return new TableValue<CompileTask>(err);
         }
 
-        TableValue<Boolean> plsqlBlockResult = isPlsqlBlock(config, plsqlBlock, plsql.getTableName());
-        dropProc = true;
-        if (plsqlBlockResult.hasError()) {
-            plsqlBlockResult.getSqlError().setTableName(plsql.getTableName());
-            plsqlBlockResult.getSqlError().setEntityIdColName(plsql.getPrimKeyColName());
-            plsqlBlockResult.getSqlError().setSqlColName(plsql.getSqlColName());
-            plsqlBlockResult.getSqlError().setEntityId(entityId.getValue());
-            plsqlBlockResult.getSqlError().setQuery(plsqlBlock);
-            plsqlBlockResult.getSqlError().setOriginalQuery(entityBlock.getValue());
-            plsqlBlockResult.getSqlError().setTable(plsql.getOrdNum());
-            plsqlBlockResult.getSqlError().setRow(value.getRow());
+        String procVars = plsql.getBindRules().getProcVars();
+        return new TableValue<>(new CompileTask(SqlStatementType.PL_SQL, plsqlBlock, procVars,
+                ResultCache.getKey("PROC", " " + procVars, plsqlBlock)));
+    }
 
-            return plsqlBlockResult.getSqlError();
+    private SqlError getPartError(TableValue<CompileTask> part, TableRow value, TableNode sql) {
+        if (part == null) {
+            return null;
+        } else if (part.hasError()) {
+            return part.getSqlError();
         }
 
-        return null;
+        CompileTask task = part.getValue();
+        if (!task.getResult().hasError()) {
+            return null;
+        }
+
+        SqlError sqlErr = task.getResult().getSqlError();
+        sqlErr.setTableName(sql.getTableName());
+        sqlErr.setEntityIdColName(sql.getPrimKeyColName());
+        sqlErr.setSqlColName(sql.getSqlColName());
+        sqlErr.setEntityId(value.getEntityId());
+        sqlErr.setQuery(task.getSql());
+        sqlErr.setOriginalQuery(value.getSql());
+        sqlErr.setTable(sql.getOrdNum());
+        sqlErr.setRow(value.getRow());
+
+        return sqlErr;
     }
 
     private void testSelectAndPlsqlBlockForAllTables() throws Exception {
-        dropProc = false;
-        dropView = false;
+        try {
+            startWorkers();
+
+            if (StringUtils.isNotBlank(config.getRowsArchive())) {
+                testArchivedRows();
+            } else {
+                testFetchedRows();
+            }
 
+            workerPool.shutdown();
+            workerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            throwIfWorkerFailed();
+
+            if (changeTracker != null) {
+                changeTracker.save();
+            }
+        } finally {
+            stopWorkers();
+        }
+    }
+
+    private void testFetchedRows() throws Exception {
+        ExecutorService fetchPool = Executors.newFixedThreadPool(config.getFetchThreads(), newThreadFactory());
+        try {
+            List<Future<Void>> fetches = new ArrayList<>();
+            for (TableNode sql : getTablesLargestFirst()) {
+                fetches.add(fetchPool.submit(() -> {
+                    testSelectAndPlsqlBlockForAllRows(sql);
+                    return null;
+                }));
+            }
+            for (Future<Void> fetch : fetches) {
+                fetch.get();
+            }
+        } catch (ExecutionException e) {
+            throw new UnexpectedException("Validation of a table is failed", e.getCause());
+        } finally {
+            fetchPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Rows are read from the archive in one thread and are validated by workers as they are read. The
+     * configuration and entity parameters are read from the archive too, so the source schema is not queried
+     */
+    private void testArchivedRows() {
+        Map<Integer, TableNode> tables = new HashMap<>();
+        Map<Integer, List<TableRow>> pendingRows = new HashMap<>();
         for (TableNode sql : selectQuery.values()) {
-            testSelectAndPlsqlBlockForAllRows(sql);
+            tables.put(sql.getOrdNum(), sql);
+            pendingRows.put(sql.getOrdNum(), new ArrayList<>());
+            tableStats.merge(sql.getTableName(), 0L, Long::sum);
         }
 
-        if (dropView) {
-            dropViewOrProc(DROP_SELECT_VIEW, "Error when view is deleting {}");
+        RowArchive.read(config.getRowsArchive(), entityParams::put, (ordNum, tableName, sqlColName, row) -> {
+            TableNode sql = tables.get(ordNum);
+            if (sql == null || !sql.getTableName().equalsIgnoreCase(tableName)
+                    || !sql.getSqlColName().equalsIgnoreCase(sqlColName)) {
+                throw new UnexpectedException("Rows archive [{}] is exported with other configuration, {}.{} is not"
+                        + " configured at position {}", config.getRowsArchive(), tableName, sqlColName, ordNum);
+            }
+            tableStats.merge(sql.getTableName(), 1L, Long::sum);
+
+            TableValue<String> entitySqlBlock = TableValue.createString(row.getSql(), config.getMaxSqlLength());
+            if (entitySqlBlock.hasError()) {
+                logReadError(entitySqlBlock.getSqlError(), sql, row.getEntityId(), row.getRow());
+                return;
+            }
+            submitRow(pendingRows.get(ordNum), row, sql);
+        });
+
+        for (TableNode sql : selectQuery.values()) {
+            submitPendingRows(pendingRows.get(sql.getOrdNum()), sql);
         }
+    }
+
+    /**
+     * The resolved configuration, entity parameters of bind rules and rows of all configured columns are written
+     * to the rows archive without validation. Values are written in full regardless of the max SQL length, which is applied when
+     * the archive is validated
+     */
+    private void exportRows() {
+        RowArchive archive = RowArchive.create(config.getRowsExport());
+        try {
+            archive.writeHeader(selectQuery, appSettings.getTest1Pid());
 
-        if (dropProc) {
-            dropViewOrProc(DROP_PLSQL_PROC, "Deleting procedure error [{}]");
+            Set<String> paramsSqls = new LinkedHashSet<>();
+            for (TableNode sql : selectQuery.values()) {
+                if (sql.getBindRules().getEntityParamsSql() != null) {
+                    paramsSqls.add(sql.getBindRules().getEntityParamsSql());
+                }
+            }
+            for (String paramsSql : paramsSqls) {
+                archive.writeEntityParams(paramsSql, loadEntityParams(paramsSql));
+            }
+
+            for (TableNode sql : selectQuery.values()) {
+                AtomicReference<TableColumns> columns = new AtomicReference<>();
+                SqlError fetchErr = fetchSqlRowSetData(sql, sql.getSql(), entitySqls -> {
+                    if (columns.get() == null) {
+                        columns.set(new TableColumns(entitySqls, sql));
+                    }
+                    TableRow row = readTableRow(entitySqls, columns.get(), sql, Integer.MAX_VALUE);
+                    if (row != null) {
+                        archive.writeRow(sql, row);
+                    }
+                });
+                if (fetchErr != null) {
+                    logSqlError(fetchErr, sql);
+                }
+            }
+        } finally {
+            archive.close();
         }
+        logger.info(INFO_MARKER, "{} rows are exported to [{}]", archive.getRowCount(), config.getRowsExport());
     }
 
     private void testSelectAndPlsqlBlockForAllRows(TableNode sql) throws Exception {
-        TableValue<SqlRowSet> entitySqls = getSqlRowSetData(sql);
-        Long rowCount = 0L;
-        if (entitySqls.hasError()) {
-            logSqlError(entitySqls.getSqlError());
-        } else {
-            while (entitySqls.getValue().next()) {
-                rowCount++;
-                if (testSqlString(entitySqls.getValue(), sql)) {
-
-                    SqlError sqlSelectErr = null;
-                    SqlError plSqlBlockErr = null;
-
-                    switch (recognizeSelectOrPlSql(entitySqls.getValue(), sql)) {
-                        case SELECT:
-                            sqlSelectErr = testSelectStatementPart(entitySqls.getValue(), sql);
-                            break;
-                        case PL_SQL:
-                            plSqlBlockErr = testPlsqlBlocksPart(entitySqls.getValue(), sql);
-                            break;
-                        case EMPTY:
-                            sqlSelectErr = testSelectStatementPart(entitySqls.getValue(), sql);
-                            plSqlBlockErr = testPlsqlBlocksPart(entitySqls.getValue(), sql);
-                            break;
-                    }
+        String tableSql = sql.getSql();
+        String highWaterMarkKey = null;
+        if (changeTracker != null) {
+            highWaterMarkKey = getHighWaterMarkKey(sql);
+            tableSql = sql.getChangedRowsSql(changeTracker.getHighWaterMark(highWaterMarkKey),
+                    changeTracker.getFailedRows(highWaterMarkKey));
+        }
+
+        List<TableRow> pendingRows = new ArrayList<>();
+        AtomicLong rowCount = new AtomicLong();
+        AtomicLong maxRowScn = new AtomicLong();
+        AtomicReference<TableColumns> columns = new AtomicReference<>();
+        StageTimings timings = tableTimings[sql.getOrdNum() - 1];
+        AtomicLong rowEndNanos = new AtomicLong(System.nanoTime());
+        SqlError fetchErr = fetchSqlRowSetData(sql, tableSql, entitySqls -> {
+            long rowStartNanos = System.nanoTime();
+            timings.record(StageTimings.Stage.FETCH, rowStartNanos - rowEndNanos.get());
+            rowCount.incrementAndGet();
+            if (columns.get() == null) {
+                columns.set(new TableColumns(entitySqls, sql));
+            }
+            if (changeTracker != null) {
+                maxRowScn.accumulateAndGet(entitySqls.getLong(TableNode.ROW_SCN_COL_NAME), Math::max);
+            }
+            TableRow row = readTableRow(entitySqls, columns.get(), sql, config.getMaxSqlLength());
+            timings.record(StageTimings.Stage.READ, System.nanoTime() - rowStartNanos);
+            if (row != null) {
+                submitRow(pendingRows, row, sql);
+            }
+            rowEndNanos.set(System.nanoTime());
+        });
+        submitPendingRows(pendingRows, sql);
+        if (fetchErr != null) {
+            logSqlError(fetchErr, sql);
+            writeResult(sql, null, fetchErr, 0);
+        } else if (changeTracker != null) {
+            // Rows committed after the query started have greater SCN, so they are fetched by the next run.
+            // Rows failed by this run are fetched by the next run by their primary keys
+            changeTracker.setHighWaterMark(highWaterMarkKey, maxRowScn.get());
+        }
+
+        // The same table may be configured for several columns
+        tableStats.merge(sql.getTableName(), rowCount.get(), Long::sum);
+    }
+
+    private String getHighWaterMarkKey(TableNode sql) {
+        return ResultCache.getKey(sql.getSql());
+    }
+
+    private void trackFailedRow(TableNode sql, String entityId) {
+        if (changeTracker != null && entityId != null) {
+            changeTracker.addFailedRow(getHighWaterMarkKey(sql), entityId);
+        }
+    }
+
+    /**
+     * Tables are fetched from the largest to the smallest by optimizer statistics, so a big table does not
+     * start last while the other fetch threads and workers are idle. Tables without statistics go first
+     */
+    private List<TableNode> getTablesLargestFirst() {
+        Map<String, Long> numRows = new HashMap<>();
+        try {
+            owner1JdbcTemplate.query(FIND_TABLES_NUM_ROWS, (RowCallbackHandler) rs -> {
+                long tableNumRows = rs.getLong("num_rows");
+                if (!rs.wasNull()) {
+                    numRows.put(rs.getString("table_name"), tableNumRows);
+                }
+            });
+        } catch (DataAccessException e) {
+            logger.info(INFO_MARKER, "Can not read table statistics, tables are validated in configured order {}",
+                    e.getMessage());
+            return selectQuery.values();
+        }
+
+        List<TableNode> tables = new ArrayList<>(selectQuery.values());
+        tables.sort(Comparator.comparing((TableNode table) -> numRows.getOrDefault(table.getTableName(),
+                Long.MAX_VALUE), Comparator.reverseOrder()));
+        return tables;
+    }
+
+    private void submitRow(List<TableRow> pendingRows, TableRow row, TableNode sql) {
+        pendingRows.add(row);
+        if (pendingRows.size() >= config.getCompileBatch()) {
+            submitPendingRows(pendingRows, sql);
+        }
+    }
 
-                    if (sqlSelectErr != null && plSqlBlockErr != null) {
-                        sqlSelectErr.union(plSqlBlockErr);
-                        logSqlError(sqlSelectErr);
-                    } else if (sqlSelectErr != null) {
-                        logSqlError(sqlSelectErr);
-                    } else if (plSqlBlockErr != null) {
-                        logSqlError(plSqlBlockErr);
+    private void submitPendingRows(List<TableRow> pendingRows, TableNode sql) {
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        List<TableRow> rows = new ArrayList<>(pendingRows);
+        pendingRows.clear();
+
+        throwIfWorkerFailed();
+        workerPool.execute(() -> {
+            CheckSqlWorker worker = null;
+            try {
+                worker = idleWorkers.take();
+                testRows(worker, rows, sql);
+            } catch (Exception e) {
+                workerError.compareAndSet(null, e);
+            } finally {
+                if (worker != null) {
+                    idleWorkers.add(worker);
+                }
+            }
+        });
+        for (TestTarget target : targets) {
+            workerPool.execute(() -> {
+                CheckSqlWorker worker = null;
+                try {
+                    worker = target.getIdleWorkers().take();
+                    testRowsInTarget(target, worker, rows, sql);
+                } catch (Exception e) {
+                    workerError.compareAndSet(null, e);
+                } finally {
+                    if (worker != null) {
+                        target.getIdleWorkers().add(worker);
                     }
                 }
+            });
+        }
+    }
+
+    /**
+     * Elapsed time of a row is the time of its preparation plus an equal share of the batch compilation
+     */
+    private void testRows(CheckSqlWorker worker, List<TableRow> rows, TableNode sql) {
+        List<RowCheck> rowChecks = new ArrayList<>(rows.size());
+        List<CompileTask> tasks = new ArrayList<>();
+        long[] prepareNanos = new long[rows.size()];
+        StageTimings timings = tableTimings[sql.getOrdNum() - 1];
+        for (TableRow row : rows) {
+            long startNanos = System.nanoTime();
+            RowCheck rowCheck = prepareRow(row, sql, timings);
+            if (rowCheck.getSelectPart() != null && !rowCheck.getSelectPart().hasError()) {
+                tasks.add(rowCheck.getSelectPart().getValue());
+            }
+            if (rowCheck.getPlsqlPart() != null && !rowCheck.getPlsqlPart().hasError()) {
+                tasks.add(rowCheck.getPlsqlPart().getValue());
             }
+            prepareNanos[rowChecks.size()] = System.nanoTime() - startNanos;
+            rowChecks.add(rowCheck);
         }
 
-        tableStats.put(sql.getTableName(), rowCount);
+        if (sqlCatalog != null) {
+            long precheckStartNanos = System.nanoTime();
+            tasks = precheckTasks(tasks);
+            timings.record(StageTimings.Stage.PRECHECK, System.nanoTime() - precheckStartNanos);
+        }
+        long compileStartNanos = System.nanoTime();
+        worker.setTimings(timings);
+        try {
+            compileTasks(worker, tasks);
+        } finally {
+            worker.setTimings(null);
+        }
+        long batchCompileNanos = System.nanoTime() - compileStartNanos;
+        timings.record(StageTimings.Stage.COMPILE, batchCompileNanos);
+        long compileNanos = batchCompileNanos / rows.size();
+
+        for (int i = 0; i < rowChecks.size(); i++) {
+            RowCheck rowCheck = rowChecks.get(i);
+            SqlError rowErr = getRowError(rowCheck, sql);
+            if (rowErr != null) {
+                logSqlError(rowErr, sql);
+                trackFailedRow(sql, rowCheck.getRow().getEntityId());
+            }
+            timings.recordRow(rowCheck.getRow().getEntityId(), prepareNanos[i] + compileNanos);
+            writeResult(sql, rowCheck.getRow().getEntityId(), rowErr,
+                    TimeUnit.NANOSECONDS.toMillis(prepareNanos[i] + compileNanos));
+        }
+        if (resultsWriter != null) {
+            resultsWriter.flush();
+        }
+    }
+
+    /**
+     * Sets results of SELECT statements decided by the test schema catalog. Other statements are compiled,
+     * except the catalog only check where they are counted as not checked and are not reported as errors.
+     * Precheck results are not cached, since the catalog is loaded again by each run anyway.
+     *
+     * @return tasks to compile
+     */
+    private List<CompileTask> precheckTasks(List<CompileTask> tasks) {
+        List<CompileTask> compiledTasks = new ArrayList<>(tasks.size());
+        for (CompileTask task : tasks) {
+            TableValue<Boolean> result = null;
+            if (SqlStatementType.SELECT == task.getType()) {
+                result = sqlCatalog.check(task.getSql());
+            }
+
+            if (result != null && result.hasError()) {
+                precheckFailedCount.incrementAndGet();
+                task.setResult(result);
+            } else if (result != null && PrecheckMode.FAIL != config.getPrecheckMode()) {
+                precheckPassedCount.incrementAndGet();
+                task.setResult(result);
+            } else if (PrecheckMode.ONLY == config.getPrecheckMode()) {
+                precheckUndecidedCount.incrementAndGet();
+                task.setResult(new TableValue<>(true));
+            } else {
+                compiledTasks.add(task);
+            }
+        }
+        return compiledTasks;
     }
 
-    private boolean testSqlString(SqlRowSet value, TableNode sql) {
+    /**
+     * Rows are prepared again for each additional test schema, since compile results are kept in the tasks.
+     * Timings, precheck and the results file cover the main test schema only
+     */
+    private void testRowsInTarget(TestTarget target, CheckSqlWorker worker, List<TableRow> rows, TableNode sql) {
+        List<RowCheck> rowChecks = new ArrayList<>(rows.size());
+        List<CompileTask> tasks = new ArrayList<>();
+        for (TableRow row : rows) {
+            RowCheck rowCheck = prepareRow(row, sql, null);
+            if (rowCheck.getSelectPart() != null && !rowCheck.getSelectPart().hasError()) {
+                tasks.add(rowCheck.getSelectPart().getValue());
+            }
+            if (rowCheck.getPlsqlPart() != null && !rowCheck.getPlsqlPart().hasError()) {
+                tasks.add(rowCheck.getPlsqlPart().getValue());
+            }
+            rowChecks.add(rowCheck);
+        }
 
-        TableValue<String> entityId = TableValue.createString(value, sql.getPrimKeyColName());
-        if (entityId == null || entityId.hasError()) {
-            entityId.getSqlError().setTableName(sql.getTableName());
-            entityId.getSqlError().setEntityIdColName(sql.getPrimKeyColName());
-            entityId.getSqlError().setSqlColName(sql.getSqlColName());
-            entityId.getSqlError().setEntityId(null);
-            entityId.getSqlError().setTable(sql.getOrdNum());
-            entityId.getSqlError().setRow(value.getRow());
+        compileTasks(worker, tasks);
 
-            return false;
+        for (RowCheck rowCheck : rowChecks) {
+            SqlError rowErr = getRowError(rowCheck, sql);
+            if (rowErr != null) {
+                logTargetSqlError(target, rowErr, sql);
+            }
         }
+    }
 
-        TableValue<String> entitySqlBlock = TableValue.createString(value, sql.getSqlColName());
-        if (entitySqlBlock == null || entitySqlBlock.hasError()) {
-            entitySqlBlock.getSqlError().setTableName(sql.getTableName());
-            entitySqlBlock.getSqlError().setEntityIdColName(sql.getPrimKeyColName());
-            entitySqlBlock.getSqlError().setSqlColName(sql.getSqlColName());
-            entitySqlBlock.getSqlError().setEntityId(entityId.getValue());
-            entitySqlBlock.getSqlError().setTable(sql.getOrdNum());
-            entitySqlBlock.getSqlError().setRow(value.getRow());
+    private SqlError getRowError(RowCheck rowCheck, TableNode sql) {
+        SqlError sqlSelectErr = getPartError(rowCheck.getSelectPart(), rowCheck.getRow(), sql);
+        SqlError plSqlBlockErr = getPartError(rowCheck.getPlsqlPart(), rowCheck.getRow(), sql);
 
-            logSqlError(entitySqlBlock.getSqlError());
-            return false;
+        if (sqlSelectErr != null && plSqlBlockErr != null) {
+            sqlSelectErr.union(plSqlBlockErr);
+            return sqlSelectErr;
+        } else if (sqlSelectErr != null) {
+            return sqlSelectErr;
         }
+        return plSqlBlockErr;
+    }
 
-        if (StringUtils.isBlank(entitySqlBlock.getValue())) {
-            return false;
+    private void writeResult(TableNode sql, String entityId, SqlError sqlError, long elapsedMs) {
+        if (resultsWriter != null) {
+            resultsWriter.write(sql.getTableName(), sql.getSqlColName(), entityId, sqlError, elapsedMs);
         }
+    }
 
-        return true;
+    /**
+     * @param timings timings of the table, null when stages should not be recorded
+     */
+    private RowCheck prepareRow(TableRow row, TableNode sql, StageTimings timings) {
+        RowCheck rowCheck = new RowCheck(row);
+
+        long startNanos = System.nanoTime();
+        SqlAnalysis analysis = new SqlAnalysis(row.getSql());
+        SqlStatementType statementType = analysis.getStatementType();
+        long rewriteStartNanos = System.nanoTime();
+        if (timings != null) {
+            timings.record(StageTimings.Stage.PARSE, rewriteStartNanos - startNanos);
+        }
+        switch (statementType) {
+            case SELECT:
+                rowCheck.setSelectPart(prepareSelectPart(row, analysis, sql));
+                break;
+            case PL_SQL:
+                rowCheck.setPlsqlPart(preparePlsqlPart(row, sql));
+                break;
+            case EMPTY:
+                rowCheck.setSelectPart(prepareSelectPart(row, analysis, sql));
+                rowCheck.setPlsqlPart(preparePlsqlPart(row, sql));
+                break;
+        }
+        if (timings != null) {
+            timings.record(StageTimings.Stage.REWRITE, System.nanoTime() - rewriteStartNanos);
+        }
+        return rowCheck;
     }
 
-    private void dropViewOrProc(String statement, String errMsg) {
+    private void startWorkers() {
+        int workersCount = config.getWorkers();
+        DataSource testDataSource;
+        String testNum;
+        JdbcTemplate testJdbcTemplate;
         if (config.isUseSecondTest()) {
-            try {
-                test2JdbcTemplate.update(statement);
-            } catch (DataAccessException e) {
-                logger.info(INFO_MARKER, errMsg, e.getMessage());
+            testJdbcTemplate = test2JdbcTemplate;
+            testNum = "2";
+        } else {
+            testJdbcTemplate = test1JdbcTemplate;
+            testNum = "1";
+        }
+        testDataSource = testJdbcTemplate.getDataSource();
+        if (PrecheckMode.ONLY == config.getPrecheckMode()) {
+            testDataSource = null;
+        }
+
+        workers = new ArrayList<>();
+        idleWorkers = new LinkedBlockingQueue<>();
+        workerError = new AtomicReference<>();
+        compileResults = new ConcurrentHashMap<>();
+        entityParams = new ConcurrentHashMap<>();
+        entityRewriters = new ConcurrentHashMap<>();
+
+        // Test pool is sized by the number of workers, so the catalog is loaded before workers borrow all of it
+        loadSqlCatalog(testJdbcTemplate);
+
+        for (int i = 1; i <= workersCount; i++) {
+            CheckSqlWorker worker = new CheckSqlWorker(i, workersCount == 1, testDataSource, testNum, null);
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+        startTargets(workersCount);
+
+        // Bounded queue with caller-runs policy keeps only a few fetched batches per worker in memory
+        int threadsCount = workersCount * (targets.size() + 1);
+        workerPool = new ThreadPoolExecutor(threadsCount, threadsCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threadsCount * QUEUED_BATCHES_PER_WORKER), newThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        if (StringUtils.isNotBlank(config.getCacheDir())) {
+            String version = getClass().getPackage().getImplementationVersion();
+            String schemaFingerprint = workers.get(0).getJdbcTemplate().queryForObject(FIND_TEST_SCHEMA_FINGERPRINT,
+                    String.class);
+            openResultCache(workers.get(0), version, schemaFingerprint);
+            if (config.isChangedOnly()) {
+                openChangeTracker(version + "/" + schemaFingerprint);
             }
+        }
+
+        if (config.isBulkCompile()) {
+            bulkCompileBlock = loadBulkCompileBlock();
+        }
+
+        if (StringUtils.isNotBlank(config.getResultsFile())) {
+            resultsWriter = ResultsWriter.open(config.getResultsFile(), config.getResultsFormat());
+        }
+    }
+
+    private void loadSqlCatalog(JdbcTemplate testJdbcTemplate) {
+        SqlCatalog catalog;
+        if (StringUtils.isNotBlank(config.getCatalogFile())) {
+            catalog = SqlCatalog.read(config.getCatalogFile());
+            logger.info(INFO_MARKER, "Catalog of schema [{}] is read from [{}] with {} objects", catalog.getSchema(),
+                    config.getCatalogFile(), catalog.size());
+        } else if (PrecheckMode.OFF != config.getPrecheckMode() || StringUtils.isNotBlank(config.getCatalogExport())) {
+            catalog = SqlCatalog.load(testJdbcTemplate);
+            logger.info(INFO_MARKER, "Catalog of schema [{}] is loaded with {} objects", catalog.getSchema(),
+                    catalog.size());
         } else {
-            try {
-                test1JdbcTemplate.update(statement);
-            } catch (DataAccessException e) {
-                logger.info(INFO_MARKER, errMsg, e.getMessage());
+            return;
+        }
+
+        if (StringUtils.isNotBlank(config.getCatalogExport())) {
+            catalog.save(config.getCatalogExport());
+            logger.info(INFO_MARKER, "Catalog of schema [{}] is saved to [{}]", catalog.getSchema(),
+                    config.getCatalogExport());
+        }
+        if (PrecheckMode.OFF != config.getPrecheckMode()) {
+            sqlCatalog = catalog;
+        }
+    }
+
+    /**
+     * Each additional test schema gets the same number of workers as the main one, its PROGRAM_ID is read
+     * from the schema itself since there is no owner schema for it. Target pools have no labeling callback, so
+     * the PROGRAM_ID is set by each worker on the connection it borrows
+     */
+    private void startTargets(int workersCount) {
+        targets = new ArrayList<>();
+        for (int i = 0; i < targetDataSources.size(); i++) {
+            DataSource targetDataSource = targetDataSources.get(i);
+            String targetNum = String.valueOf(i + 3);
+            TestTarget target = new TestTarget(targetNum, ((PoolDataSourceImpl) targetDataSource).getUser(),
+                    targetDataSource, getRandomPid(new JdbcTemplate(targetDataSource), targetNum),
+                    selectQuery.values().size());
+            for (int j = 1; j <= workersCount; j++) {
+                target.addWorker(new CheckSqlWorker(j, workersCount == 1, targetDataSource, targetNum,
+                        target.getPid()));
+            }
+            targets.add(target);
+            logger.info(INFO_MARKER, "Rows are compiled in test schema [{}] (PROGRAM_ID {}) as well",
+                    target.getSchema(), target.getPid());
+        }
+    }
+
+    /**
+     * Threads of the run inherit MDC of the calling thread, so in batch mode they log to the files of the schema
+     * the run belongs to
+     */
+    private ThreadFactory newThreadFactory() {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        ThreadFactory threadFactory = Executors.defaultThreadFactory();
+        return runnable -> threadFactory.newThread(() -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            runnable.run();
+        });
+    }
+
+    private String loadBulkCompileBlock() {
+        try (InputStream in = getClass().getResourceAsStream(BULK_COMPILE_RESOURCE)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8.name());
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not load [{}]", e, BULK_COMPILE_RESOURCE);
+        }
+    }
+
+    private void openResultCache(CheckSqlWorker worker, String version, String schemaFingerprint) {
+        String testSchema = getTestSchema();
+        Function<Set<String>, Map<String, String>> ddlTimesProvider = null;
+        if (config.isTrackDependencies()) {
+            ddlTimesProvider = dependencies -> getCurrentDdlTimes(worker, dependencies);
+        }
+        resultCache = ResultCache.open(config.getCacheDir(), testSchema.toLowerCase(), version, schemaFingerprint,
+                ddlTimesProvider);
+        logger.info(INFO_MARKER, "Result cache for schema [{}] is loaded with {} entries", testSchema,
+                resultCache.size());
+    }
+
+    private void openChangeTracker(String fingerprint) {
+        String name = config.getOwner1DbSchema() + "_" + getTestSchema();
+        changeTracker = ChangeTracker.open(config.getCacheDir(), name.toLowerCase(), fingerprint);
+        if (changeTracker.size() == 0) {
+            logger.info(INFO_MARKER, "There is no previous run for schema [{}] or it is changed, all rows are validated",
+                    getTestSchema());
+        } else {
+            logger.info(INFO_MARKER, "Only rows changed since previous run are validated for {} tables",
+                    changeTracker.size());
+        }
+    }
+
+    private String getTestSchema() {
+        if (config.isUseSecondTest()) {
+            return appSettings.getTest2Schema();
+        } else {
+            return appSettings.getTest1Schema();
+        }
+    }
+
+    private void throwIfWorkerFailed() {
+        Exception e = workerError.get();
+        if (e != null) {
+            throw new UnexpectedException("Validation of a row is failed", e);
+        }
+    }
+
+    private void stopWorkers() throws InterruptedException {
+        if (workerPool != null && !workerPool.isTerminated()) {
+            workerPool.shutdownNow();
+            workerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        releaseWorkers(workers);
+        if (targets != null) {
+            for (TestTarget target : targets) {
+                releaseWorkers(target.getWorkers());
+            }
+        }
+
+        if (resultCache != null) {
+            resultCache.close();
+        }
+        if (resultsWriter != null) {
+            resultsWriter.close();
+        }
+    }
+
+    private void releaseWorkers(List<CheckSqlWorker> workers) {
+        for (CheckSqlWorker worker : workers) {
+            for (String viewName : worker.getDropViews()) {
+                dropViewOrProc(worker, DROP_SELECT_VIEW + viewName, "Error when view is deleting {}");
             }
+
+            for (String procName : worker.getDropProcs()) {
+                dropViewOrProc(worker, DROP_PLSQL_PROC + procName, "Deleting procedure error [{}]");
+            }
+            worker.close();
+        }
+    }
+
+    /**
+     * Errors of reading primary key and SQL values are reported and counted like errors of the row validation
+     */
+    private TableRow readTableRow(SqlRowSet value, TableColumns columns, TableNode sql, int maxSqlLength) {
+
+        TableValue<String> entityId = TableValue.createString(value, columns.getPrimKeyColNum(), Integer.MAX_VALUE);
+        if (entityId == null) {
+            entityId = new TableValue<>(createReadErr("READ-PK", sql.getPrimKeyColName()));
+        }
+        if (entityId.hasError()) {
+            logReadError(entityId.getSqlError(), sql, null, value.getRow());
+            return null;
+        }
+
+        TableValue<String> entitySqlBlock = TableValue.createString(value, columns.getSqlColNum(), maxSqlLength);
+        if (entitySqlBlock == null) {
+            entitySqlBlock = new TableValue<>(createReadErr("READ-SQL", sql.getSqlColName()));
+        }
+        if (entitySqlBlock.hasError()) {
+            logReadError(entitySqlBlock.getSqlError(), sql, entityId.getValue(), value.getRow());
+            trackFailedRow(sql, entityId.getValue());
+            return null;
+        }
+
+        if (StringUtils.isBlank(entitySqlBlock.getValue())) {
+            return null;
+        }
+
+        return new TableRow(entityId.getValue(), entitySqlBlock.getValue(), value.getRow());
+    }
+
+    private SqlError createReadErr(String errType, String colName) {
+        SqlError sqlErr = new SqlError(errType);
+        sqlErr.setErrMsg("Can not read value of column " + colName);
+        return sqlErr;
+    }
+
+    private void logReadError(SqlError sqlErr, TableNode sql, String entityId, int row) {
+        sqlErr.setTableName(sql.getTableName());
+        sqlErr.setEntityIdColName(sql.getPrimKeyColName());
+        sqlErr.setSqlColName(sql.getSqlColName());
+        sqlErr.setEntityId(entityId);
+        sqlErr.setTable(sql.getOrdNum());
+        sqlErr.setRow(row);
+
+        logSqlError(sqlErr, sql);
+        writeResult(sql, entityId, sqlErr, 0);
+    }
+
+    private void dropViewOrProc(CheckSqlWorker worker, String statement, String errMsg) {
+        try {
+            worker.getJdbcTemplate().update(statement);
+        } catch (DataAccessException e) {
+            logger.info(INFO_MARKER, errMsg, e.getMessage());
         }
     }
 
@@ -924,14 +1901,6 @@ public class CheckSqlExecutor {
         }
     }
 
-    private SqlStatementType recognizeSelectOrPlSql(SqlRowSet value, TableNode sel) {
-
-        TableValue<String> entitySql = TableValue.createString(value, sel.getSqlColName());
-        String selectSql = new String(entitySql.getValue());
-
-        return SqlParser.recognizeSelectStatementAndPlSql(selectSql);
-    }
-
     private String parseUrlToSchemaWithUrlBeforeDot(String schemaName, String url) {
         url = url.replaceAll(JDBC_THIN_URL_PREFIX, "");
         int colonIndex = url.indexOf(':');
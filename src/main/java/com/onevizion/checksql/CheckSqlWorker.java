@@ -0,0 +1,153 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.exception.UnexpectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Holds a test DB connection borrowed from the pool for the whole run and names of the views and procedures
+ * which are used to compile SQL on this connection. Each worker has own names, so workers may compile
+ * statements concurrently.
+ */
+public class CheckSqlWorker {
+
+    private static final String PLSQL_PROC_NAME = "CHECKSQL_PLSQL";
+
+    private static final String SELECT_VIEW_NAME = "CHECKSQL_SELECT";
+
+    private static final String SET_PID_SQL = "call pkg_sec.set_pid(:pid)";
+
+    private final int num;
+    private final String testNum;
+    private final Connection connection;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParamJdbcTemplate;
+    private final String selectViewName;
+    private final String plsqlProcName;
+    private final Set<String> dropViews = new LinkedHashSet<>();
+    private final Set<String> dropProcs = new LinkedHashSet<>();
+
+    private StageTimings timings;
+
+    /**
+     * @param pid PROGRAM_ID set on the borrowed connection, null when the pool sets it by connection labels
+     */
+    public CheckSqlWorker(int num, boolean singleWorker, DataSource testDataSource, String testNum, Long pid) {
+        this.num = num;
+        this.testNum = testNum;
+        if (testDataSource == null) {
+            // Statements are checked against a catalog only and are not compiled
+            connection = null;
+            jdbcTemplate = null;
+            namedParamJdbcTemplate = null;
+        } else {
+            try {
+                connection = testDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new UnexpectedException("[Test" + testNum + "] Can not get a connection for worker " + num, e);
+            }
+            jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            namedParamJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+            if (pid != null) {
+                try {
+                    jdbcTemplate.execute(SET_PID_SQL.replace(":pid", pid.toString()));
+                } catch (DataAccessException e) {
+                    close();
+                    throw new UnexpectedException("[Test" + testNum + "] Can not set PROGRAM_ID for worker " + num, e);
+                }
+            }
+        }
+        if (singleWorker) {
+            selectViewName = SELECT_VIEW_NAME;
+            plsqlProcName = PLSQL_PROC_NAME;
+        } else {
+            selectViewName = SELECT_VIEW_NAME + "_" + num;
+            plsqlProcName = PLSQL_PROC_NAME + "_" + num;
+        }
+    }
+
+    public int getNum() {
+        return num;
+    }
+
+    public String getTestNum() {
+        return testNum;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public NamedParameterJdbcTemplate getNamedParamJdbcTemplate() {
+        return namedParamJdbcTemplate;
+    }
+
+    public String getSelectViewName() {
+        return selectViewName;
+    }
+
+    public String getPlsqlProcName() {
+        return plsqlProcName;
+    }
+
+    /**
+     * Name of the view for the given position in a compile batch
+     */
+    public String getSelectViewName(int slot) {
+        return SELECT_VIEW_NAME + "_" + num + "_" + slot;
+    }
+
+    /**
+     * Name of the procedure for the given position in a compile batch
+     */
+    public String getPlsqlProcName(int slot) {
+        return PLSQL_PROC_NAME + "_" + num + "_" + slot;
+    }
+
+    public Set<String> getDropViews() {
+        return dropViews;
+    }
+
+    public void addDropView(String viewName) {
+        dropViews.add(viewName);
+    }
+
+    public Set<String> getDropProcs() {
+        return dropProcs;
+    }
+
+    public void addDropProc(String procName) {
+        dropProcs.add(procName);
+    }
+
+    /**
+     * Timings of the table which rows are compiled by the worker now
+     */
+    public StageTimings getTimings() {
+        return timings;
+    }
+
+    public void setTimings(StageTimings timings) {
+        this.timings = timings;
+    }
+
+    public void close() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new UnexpectedException("Can not release a connection of worker " + num, e);
+        }
+    }
+
+}
@@ -1,15 +1,278 @@
 package com.onevizion.checksql;
 
+import com.onevizion.checksql.vo.BatchConfiguration;
 import com.onevizion.checksql.vo.Configuration;
+import com.onevizion.checksql.vo.PrecheckMode;
+import com.onevizion.checksql.vo.ResultsFormat;
+import com.onevizion.checksql.vo.SelectCheckMode;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ConfigurationUtils {
 
     private static final String CONFIG_FILE_REGEXP = ".*?\\.json";
 
+    private static final String OPTION_PREFIX = "--";
+
+    private static final String WORKERS_OPTION = "workers";
+
+    private static final String CACHE_DIR_OPTION = "cache-dir";
+
+    private static final String FETCH_SIZE_OPTION = "fetch-size";
+
+    private static final String FETCH_THREADS_OPTION = "fetch-threads";
+
+    private static final String MAX_SQL_LENGTH_OPTION = "max-sql-length";
+
+    private static final String COMPILE_BATCH_OPTION = "compile-batch";
+
+    private static final String SELECT_CHECK_OPTION = "select-check";
+
+    private static final String BULK_COMPILE_OPTION = "bulk-compile";
+
+    private static final String POOL_SIZE_OPTION = "pool-size";
+
+    private static final String MAX_STATEMENTS_OPTION = "max-statements";
+
+    private static final String CHANGED_ONLY_OPTION = "changed-only";
+
+    private static final String TRACK_DEPENDENCIES_OPTION = "track-dependencies";
+
+    private static final String RESULTS_FILE_OPTION = "results-file";
+
+    private static final String RESULTS_FORMAT_OPTION = "results-format";
+
+    private static final String TIMINGS_OPTION = "timings";
+
+    private static final String SLOW_ROWS_OPTION = "slow-rows";
+
+    private static final String PRECHECK_OPTION = "precheck";
+
+    private static final String CATALOG_FILE_OPTION = "catalog-file";
+
+    private static final String CATALOG_EXPORT_OPTION = "catalog-export";
+
+    private static final String ROWS_EXPORT_OPTION = "rows-export";
+
+    private static final String ROWS_ARCHIVE_OPTION = "rows-archive";
+
+    private static final String TARGET_OPTION = "target";
+
+    private static final String BATCH_OPTION = "batch";
+
+    private static final String BATCH_THREADS_OPTION = "batch-threads";
+
+    // Names of a batch are passed to one IN list and Oracle limits it by 1000 values
+    private static final int MAX_COMPILE_BATCH = 1000;
+
+    /**
+     * Each not empty line of the batch file which is not a # comment holds the arguments of one schema in the same
+     * format as the command line. Options of the command line are applied to all schemas, options of a line
+     * override them.
+     *
+     * @return null when the batch option is not set
+     */
+    public static BatchConfiguration loadBatchConfiguration(List<String> listArgs) {
+        BatchConfiguration batch = new BatchConfiguration();
+        List<String> commonArgs = new ArrayList<>();
+        for (String arg : listArgs) {
+            if (arg.startsWith(OPTION_PREFIX + BATCH_OPTION + "=")) {
+                batch.setBatchFile(arg.substring(arg.indexOf('=') + 1).trim());
+            } else if (arg.startsWith(OPTION_PREFIX + BATCH_THREADS_OPTION + "=")) {
+                batch.setThreads(parsePositiveInt(BATCH_THREADS_OPTION, arg.substring(arg.indexOf('=') + 1).trim()));
+            } else {
+                commonArgs.add(arg);
+            }
+        }
+        if (StringUtils.isBlank(batch.getBatchFile())) {
+            return null;
+        }
+        if (commonArgs.stream().anyMatch(arg -> !arg.startsWith(OPTION_PREFIX))) {
+            throw new IllegalArgumentException("Connection strings should be set in [" + OPTION_PREFIX
+                    + BATCH_OPTION + "] file instead of command line");
+        }
+
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(batch.getBatchFile()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Can not read batch file [" + batch.getBatchFile() + "]", e);
+        }
+        for (String line : lines) {
+            if (StringUtils.isBlank(line) || line.trim().startsWith("#")) {
+                continue;
+            }
+            List<String> entryArgs = new ArrayList<>(commonArgs);
+            entryArgs.addAll(Arrays.asList(line.trim().split("\\s+")));
+            // Arguments are validated before the batch is started
+            loadConfiguration(entryArgs);
+            batch.addEntry(entryArgs);
+        }
+        if (batch.getEntries().isEmpty()) {
+            throw new IllegalArgumentException("Batch file [" + batch.getBatchFile() + "] has no schemas");
+        }
+        return batch;
+    }
+
     public static Configuration loadConfiguration(List<String> listArgs) {
-        return loadConfigurationFromFile(listArgs);
+        List<String> positionalArgs = new ArrayList<>();
+        List<String> options = new ArrayList<>();
+        for (String arg : listArgs) {
+            if (arg.startsWith(OPTION_PREFIX)) {
+                options.add(arg.substring(OPTION_PREFIX.length()));
+            } else {
+                positionalArgs.add(arg);
+            }
+        }
+
+        if (positionalArgs.isEmpty()) {
+            throw new IllegalArgumentException("remote_owner should be set");
+        }
+
+        Configuration configuration = loadConfigurationFromFile(positionalArgs);
+        for (String option : options) {
+            applyOption(configuration, option);
+        }
+
+        if (configuration.getPoolSize() != null && configuration.getPoolSize() < configuration.getWorkers()) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + POOL_SIZE_OPTION
+                    + "] should not be less than [" + OPTION_PREFIX + WORKERS_OPTION + "]");
+        }
+        if (configuration.isChangedOnly() && StringUtils.isBlank(configuration.getCacheDir())) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + CHANGED_ONLY_OPTION + "] requires ["
+                    + OPTION_PREFIX + CACHE_DIR_OPTION + "]");
+        }
+        if (configuration.isTrackDependencies() && StringUtils.isBlank(configuration.getCacheDir())) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + TRACK_DEPENDENCIES_OPTION + "] requires ["
+                    + OPTION_PREFIX + CACHE_DIR_OPTION + "]");
+        }
+        if (StringUtils.isNotBlank(configuration.getCatalogFile())
+                && PrecheckMode.OFF == configuration.getPrecheckMode()) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + CATALOG_FILE_OPTION + "] requires ["
+                    + OPTION_PREFIX + PRECHECK_OPTION + "]");
+        }
+        if (StringUtils.isNotBlank(configuration.getCatalogFile())
+                && StringUtils.isNotBlank(configuration.getCatalogExport())) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + CATALOG_EXPORT_OPTION
+                    + "] can not be used with [" + OPTION_PREFIX + CATALOG_FILE_OPTION + "]");
+        }
+        // Results of the result cache are bound to the test schema, which is not used by the catalog only check
+        if (PrecheckMode.ONLY == configuration.getPrecheckMode()
+                && StringUtils.isNotBlank(configuration.getCacheDir())) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + PRECHECK_OPTION + "="
+                    + PrecheckMode.ONLY.getOptionValue() + "] can not be used with [" + OPTION_PREFIX
+                    + CACHE_DIR_OPTION + "]");
+        }
+        if (StringUtils.isNotBlank(configuration.getRowsExport())
+                && StringUtils.isNotBlank(configuration.getRowsArchive())) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + ROWS_EXPORT_OPTION
+                    + "] can not be used with [" + OPTION_PREFIX + ROWS_ARCHIVE_OPTION + "]");
+        }
+        // Archived rows have no ORA_ROWSCN to find changed rows by
+        if (configuration.isChangedOnly() && StringUtils.isNotBlank(configuration.getRowsArchive())) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + CHANGED_ONLY_OPTION
+                    + "] can not be used with [" + OPTION_PREFIX + ROWS_ARCHIVE_OPTION + "]");
+        }
+        if (!configuration.getTargets().isEmpty() && PrecheckMode.ONLY == configuration.getPrecheckMode()) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + TARGET_OPTION + "] can not be used with ["
+                    + OPTION_PREFIX + PRECHECK_OPTION + "=" + PrecheckMode.ONLY.getOptionValue() + "]");
+        }
+        return configuration;
+    }
+
+    private static void applyOption(Configuration configuration, String option) {
+        int eqIndex = option.indexOf('=');
+        if (eqIndex == -1) {
+            throw new IllegalArgumentException("Option should be specified in following format: --<name>=<value>");
+        }
+        String name = option.substring(0, eqIndex).trim().toLowerCase();
+        String value = option.substring(eqIndex + 1).trim();
+
+        if (WORKERS_OPTION.equals(name)) {
+            configuration.setWorkers(parsePositiveInt(name, value));
+        } else if (CACHE_DIR_OPTION.equals(name)) {
+            configuration.setCacheDir(value);
+        } else if (FETCH_SIZE_OPTION.equals(name)) {
+            configuration.setFetchSize(parsePositiveInt(name, value));
+        } else if (FETCH_THREADS_OPTION.equals(name)) {
+            configuration.setFetchThreads(parsePositiveInt(name, value));
+        } else if (MAX_SQL_LENGTH_OPTION.equals(name)) {
+            configuration.setMaxSqlLength(parsePositiveInt(name, value));
+        } else if (COMPILE_BATCH_OPTION.equals(name)) {
+            int compileBatch = parsePositiveInt(name, value);
+            if (compileBatch > MAX_COMPILE_BATCH) {
+                throw new IllegalArgumentException("Option [" + OPTION_PREFIX + name + "] should not be greater than "
+                        + MAX_COMPILE_BATCH);
+            }
+            configuration.setCompileBatch(compileBatch);
+        } else if (SELECT_CHECK_OPTION.equals(name)) {
+            configuration.setSelectCheckMode(SelectCheckMode.getByOptionValue(value));
+        } else if (BULK_COMPILE_OPTION.equals(name)) {
+            configuration.setBulkCompile(parseBoolean(name, value));
+        } else if (POOL_SIZE_OPTION.equals(name)) {
+            configuration.setPoolSize(parsePositiveInt(name, value));
+        } else if (MAX_STATEMENTS_OPTION.equals(name)) {
+            configuration.setMaxStatements(parseInt(name, value, 0));
+        } else if (CHANGED_ONLY_OPTION.equals(name)) {
+            configuration.setChangedOnly(parseBoolean(name, value));
+        } else if (TRACK_DEPENDENCIES_OPTION.equals(name)) {
+            configuration.setTrackDependencies(parseBoolean(name, value));
+        } else if (RESULTS_FILE_OPTION.equals(name)) {
+            configuration.setResultsFile(value);
+        } else if (RESULTS_FORMAT_OPTION.equals(name)) {
+            configuration.setResultsFormat(ResultsFormat.getByOptionValue(value));
+        } else if (TIMINGS_OPTION.equals(name)) {
+            configuration.setTimings(parseBoolean(name, value));
+        } else if (SLOW_ROWS_OPTION.equals(name)) {
+            configuration.setSlowRows(parseInt(name, value, 0));
+        } else if (PRECHECK_OPTION.equals(name)) {
+            configuration.setPrecheckMode(PrecheckMode.getByOptionValue(value));
+        } else if (CATALOG_FILE_OPTION.equals(name)) {
+            configuration.setCatalogFile(value);
+        } else if (CATALOG_EXPORT_OPTION.equals(name)) {
+            configuration.setCatalogExport(value);
+        } else if (ROWS_EXPORT_OPTION.equals(name)) {
+            configuration.setRowsExport(value);
+        } else if (ROWS_ARCHIVE_OPTION.equals(name)) {
+            configuration.setRowsArchive(value);
+        } else if (TARGET_OPTION.equals(name)) {
+            configuration.addTarget(value);
+        } else {
+            throw new IllegalArgumentException("Unknown option [" + OPTION_PREFIX + name + "]");
+        }
+    }
+
+    private static int parsePositiveInt(String name, String value) {
+        return parseInt(name, value, 1);
+    }
+
+    private static int parseInt(String name, String value, int minValue) {
+        int intValue;
+        try {
+            intValue = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + name + "] should be a number", e);
+        }
+        if (intValue < minValue) {
+            throw new IllegalArgumentException("Option [" + OPTION_PREFIX + name + "] should be greater than "
+                    + (minValue - 1));
+        }
+        return intValue;
+    }
+
+    private static boolean parseBoolean(String name, String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Option [" + OPTION_PREFIX + name + "] should be true or false");
     }
 
     private static Configuration loadConfigurationFromFile(List<String> listArgs) {
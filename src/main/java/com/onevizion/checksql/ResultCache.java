@@ -0,0 +1,283 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.exception.UnexpectedException;
+import com.onevizion.checksql.vo.SqlError;
+import com.onevizion.checksql.vo.TableValue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Persistent cache of compilation results. Entry key is a hash of the compiled SQL text, all entries are
+ * valid for one test schema fingerprint only and the file is reset when the fingerprint is changed.
+ * When dependencies are tracked, passed entries survive a change of the test schema while DDL time of
+ * every object they depend on is the same.
+ */
+public class ResultCache {
+
+    private static final String FILE_EXT = ".cache";
+    private static final String FIELD_DELIMITER = "\t";
+    private static final String PASSED = "1";
+    private static final String FAILED = "0";
+    private static final String DEPENDENCY_DELIMITER = "\n";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Writer writer;
+
+    private ResultCache(File file, String fingerprint, String schemaFingerprint,
+            Function<Set<String>, Map<String, String>> ddlTimesProvider) throws IOException {
+        boolean valid = false;
+        boolean schemaChanged = false;
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                valid = fingerprint.equals(reader.readLine());
+                schemaChanged = !schemaFingerprint.equals(reader.readLine());
+                valid = valid && (!schemaChanged || ddlTimesProvider != null);
+                String line;
+                while (valid && (line = reader.readLine()) != null) {
+                    readEntry(line);
+                }
+            }
+        }
+
+        if (valid && schemaChanged) {
+            removeChangedEntries(ddlTimesProvider);
+        }
+
+        if (valid && !schemaChanged) {
+            writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } else {
+            if (!valid) {
+                entries.clear();
+            }
+            writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            writer.write(fingerprint);
+            writer.write(SqlError.LINE_DELIMITER);
+            writer.write(schemaFingerprint);
+            writer.write(SqlError.LINE_DELIMITER);
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(toLine(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * @param ddlTimesProvider returns current DDL time of given dependencies, null when dependencies are not
+     *                         tracked and the whole cache is reset on any change of the test schema
+     */
+    public static ResultCache open(String dir, String name, String fingerprint, String schemaFingerprint,
+            Function<Set<String>, Map<String, String>> ddlTimesProvider) {
+        File cacheDir = new File(dir);
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new UnexpectedException("Can not create cache directory [{}]", dir);
+        }
+        try {
+            return new ResultCache(new File(cacheDir, name + FILE_EXT), fingerprint, schemaFingerprint,
+                    ddlTimesProvider);
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not open result cache in [{}]", e, dir);
+        }
+    }
+
+    public static String getKey(String... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnexpectedException("SHA-256 is not supported", e);
+        }
+        for (String part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        byte[] hash = digest.digest();
+        char[] key = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            key[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            key[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public TableValue<Boolean> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.toTableValue();
+    }
+
+    /**
+     * @param dependencies DDL time of each object the compiled SQL depends on, null when they are unknown
+     */
+    public void put(String key, TableValue<Boolean> result, Map<String, String> dependencies) {
+        Entry entry = new Entry(result, dependencies);
+        if (entries.putIfAbsent(key, entry) != null) {
+            return;
+        }
+
+        String line = toLine(key, entry);
+        synchronized (writer) {
+            try {
+                writer.write(line);
+            } catch (IOException e) {
+                throw new UnexpectedException("Can not write to result cache", e);
+            }
+        }
+    }
+
+    public void close() {
+        synchronized (writer) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UnexpectedException("Can not close result cache", e);
+            }
+        }
+    }
+
+    /**
+     * Failed entries and entries without known dependencies are removed too, since a new object may fix
+     * a failed SQL
+     */
+    private void removeChangedEntries(Function<Set<String>, Map<String, String>> ddlTimesProvider) {
+        Set<String> dependencies = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            if (entry.dependencies != null) {
+                dependencies.addAll(entry.dependencies.keySet());
+            }
+        }
+
+        Map<String, String> ddlTimes = ddlTimesProvider.apply(dependencies);
+        entries.values().removeIf(entry -> !entry.passed || entry.dependencies == null
+                || !entry.dependencies.entrySet().stream()
+                                      .allMatch(dep -> dep.getValue().equals(ddlTimes.get(dep.getKey()))));
+    }
+
+    private String toLine(String key, Entry entry) {
+        StringBuilder line = new StringBuilder(key);
+        if (entry.passed) {
+            line.append(FIELD_DELIMITER).append(PASSED);
+            if (entry.dependencies != null) {
+                line.append(FIELD_DELIMITER).append(encode(encodeDependencies(entry.dependencies)));
+            }
+        } else {
+            line.append(FIELD_DELIMITER).append(FAILED)
+                .append(FIELD_DELIMITER).append(encode(entry.errType))
+                .append(FIELD_DELIMITER).append(encode(entry.errMsg))
+                .append(FIELD_DELIMITER).append(encode(entry.shortErrMsg));
+        }
+        line.append(SqlError.LINE_DELIMITER);
+        return line.toString();
+    }
+
+    private void readEntry(String line) {
+        String[] fields = line.split(FIELD_DELIMITER, -1);
+        if (fields.length == 2 && PASSED.equals(fields[1])) {
+            entries.put(fields[0], new Entry(true, null, null, null, null));
+        } else if (fields.length == 3 && PASSED.equals(fields[1])) {
+            entries.put(fields[0], new Entry(true, null, null, null, decodeDependencies(decode(fields[2]))));
+        } else if (fields.length == 5 && FAILED.equals(fields[1])) {
+            entries.put(fields[0], new Entry(false, decode(fields[2]), decode(fields[3]), decode(fields[4]), null));
+        }
+    }
+
+    private static String encodeDependencies(Map<String, String> dependencies) {
+        StringBuilder value = new StringBuilder();
+        for (Map.Entry<String, String> dependency : dependencies.entrySet()) {
+            if (value.length() > 0) {
+                value.append(DEPENDENCY_DELIMITER);
+            }
+            value.append(dependency.getKey()).append(FIELD_DELIMITER).append(dependency.getValue());
+        }
+        return value.toString();
+    }
+
+    private static Map<String, String> decodeDependencies(String value) {
+        Map<String, String> dependencies = new HashMap<>();
+        if (value == null) {
+            return dependencies;
+        }
+        for (String dependency : value.split(DEPENDENCY_DELIMITER)) {
+            String[] fields = dependency.split(FIELD_DELIMITER, -1);
+            if (fields.length == 2) {
+                dependencies.put(fields[0], fields[1]);
+            }
+        }
+        return dependencies;
+    }
+
+    private static String encode(String value) {
+        if (value == null) {
+            return "";
+        }
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+
+        private final boolean passed;
+        private final String errType;
+        private final String errMsg;
+        private final String shortErrMsg;
+        private final Map<String, String> dependencies;
+
+        private Entry(boolean passed, String errType, String errMsg, String shortErrMsg,
+                Map<String, String> dependencies) {
+            this.passed = passed;
+            this.errType = errType;
+            this.errMsg = errMsg;
+            this.shortErrMsg = shortErrMsg;
+            this.dependencies = dependencies;
+        }
+
+        private Entry(TableValue<Boolean> result, Map<String, String> dependencies) {
+            this(!result.hasError(),
+                    result.hasError() ? result.getSqlError().getErrType() : null,
+                    result.hasError() ? result.getSqlError().getErrMsg() : null,
+                    result.hasError() ? result.getSqlError().getShortErrMsg() : null,
+                    dependencies);
+        }
+
+        private TableValue<Boolean> toTableValue() {
+            if (passed) {
+                return new TableValue<>(true, null);
+            }
+            // Callers fill a row context in the error, so each row gets own instance
+            SqlError sqlError = new SqlError(errType);
+            sqlError.setErrMsg(errMsg);
+            sqlError.setShortErrMsg(shortErrMsg);
+            return new TableValue<>(false, sqlError);
+        }
+
+    }
+
+}
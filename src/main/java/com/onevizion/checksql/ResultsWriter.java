@@ -0,0 +1,133 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.exception.UnexpectedException;
+import com.onevizion.checksql.vo.ChecksqlErrorType;
+import com.onevizion.checksql.vo.ResultsFormat;
+import com.onevizion.checksql.vo.SqlError;
+import org.json.simple.JSONValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Machine-readable results of a run, one record per validated row. Records are written while rows are
+ * validated, so results of a long run may be read before it is completed.
+ */
+public class ResultsWriter {
+
+    public static final String PASSED = "passed";
+    public static final String FAILED = "failed";
+    public static final String CONFIG_ERROR = "config-error";
+
+    private static final String[] FIELDS = {"table", "column", "pk", "status", "error_type", "message",
+            "elapsed_ms"};
+
+    private final Writer writer;
+    private final ResultsFormat format;
+
+    private ResultsWriter(File file, ResultsFormat format) throws IOException {
+        this.format = format;
+        writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        if (ResultsFormat.CSV == format) {
+            writeRecord((Object[]) FIELDS);
+        }
+    }
+
+    public static ResultsWriter open(String path, ResultsFormat format) {
+        File file = new File(path);
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new UnexpectedException("Can not create directory [{}]", dir.getPath());
+        }
+        try {
+            return new ResultsWriter(file, format);
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not open results file [{}]", e, path);
+        }
+    }
+
+    /**
+     * @param sqlError error of the row, null when the row is passed
+     */
+    public synchronized void write(String table, String column, String pk, SqlError sqlError, long elapsedMs) {
+        if (sqlError == null) {
+            writeRecord(table, column, pk, PASSED, null, null, elapsedMs);
+        } else {
+            String status = ChecksqlErrorType.CONFIG == sqlError.getChecksqlErrorType() ? CONFIG_ERROR : FAILED;
+            String message = sqlError.getShortErrMsg() == null ? null : sqlError.getShortErrMsg().trim();
+            writeRecord(table, column, pk, status, sqlError.getErrType(), message, elapsedMs);
+        }
+    }
+
+    /**
+     * Makes records written so far visible to readers of the file
+     */
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not write to results file", e);
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not close results file", e);
+        }
+    }
+
+    private void writeRecord(Object... values) {
+        StringBuilder record = new StringBuilder();
+        if (ResultsFormat.CSV == format) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    record.append(',');
+                }
+                record.append(toCsvValue(values[i]));
+            }
+        } else {
+            record.append('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    record.append(',');
+                }
+                record.append('"').append(FIELDS[i]).append("\":").append(toJsonValue(values[i]));
+            }
+            record.append('}');
+        }
+        record.append('\n');
+
+        try {
+            writer.write(record.toString());
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not write to results file", e);
+        }
+    }
+
+    private static String toCsvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String str = value.toString();
+        if (str.indexOf(',') == -1 && str.indexOf('"') == -1 && str.indexOf('\n') == -1
+                && str.indexOf('\r') == -1) {
+            return str;
+        }
+        return '"' + str.replace("\"", "\"\"") + '"';
+    }
+
+    private static String toJsonValue(Object value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof Number) {
+            return value.toString();
+        }
+        return '"' + JSONValue.escape(value.toString()) + '"';
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.exception.UnexpectedException;
+import com.onevizion.checksql.vo.SelectQuery;
+import com.onevizion.checksql.vo.TableNode;
+import com.onevizion.checksql.vo.TableRow;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped JSON Lines file with rows extracted from the source schema, so rows are extracted once and validated
+ * against several test schemas without queries to the source schema. The first record keeps the resolved
+ * configuration and the PROGRAM_ID of the source schema. Entity parameters of bind rules are written before rows,
+ * so they are loaded before the rows which use them are validated.
+ */
+public class RowArchive {
+
+    private static final String CONFIGURATION_KEY = "configuration";
+    private static final String PID_KEY = "pid";
+    private static final String PARAMS_SQL_KEY = "paramsSql";
+    private static final String PARAMS_KEY = "params";
+    private static final String ORD_NUM_KEY = "ordNum";
+    private static final String TABLE_KEY = "table";
+    private static final String COLUMN_KEY = "column";
+    private static final String PK_KEY = "pk";
+    private static final String ROW_KEY = "row";
+    private static final String SQL_KEY = "sql";
+
+    public interface RowHandler {
+
+        void accept(int ordNum, String tableName, String sqlColName, TableRow row);
+
+    }
+
+    public static class Header {
+
+        private final SelectQuery selectQuery;
+        private final Long pid;
+
+        private Header(SelectQuery selectQuery, Long pid) {
+            this.selectQuery = selectQuery;
+            this.pid = pid;
+        }
+
+        public SelectQuery getSelectQuery() {
+            return selectQuery;
+        }
+
+        /**
+         * PROGRAM_ID of the source schema, null when it was not looked up by the export
+         */
+        public Long getPid() {
+            return pid;
+        }
+
+    }
+
+    private final Writer writer;
+    private long rowCount;
+
+    private RowArchive(File file) throws IOException {
+        writer = new OutputStreamWriter(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file))),
+                StandardCharsets.UTF_8);
+    }
+
+    public static RowArchive create(String path) {
+        File file = new File(path);
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new UnexpectedException("Can not create directory [{}]", dir.getPath());
+        }
+        try {
+            return new RowArchive(file);
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not create rows archive [{}]", e, path);
+        }
+    }
+
+    /**
+     * Should be written before any other record
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void writeHeader(SelectQuery selectQuery, Long pid) {
+        JSONObject record = new JSONObject();
+        record.put(CONFIGURATION_KEY, selectQuery.getResolvedConfiguration());
+        record.put(PID_KEY, pid);
+        writeRecord(record);
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized void writeEntityParams(String paramsSql, Map<String, List<String>> params) {
+        JSONObject record = new JSONObject();
+        record.put(PARAMS_SQL_KEY, paramsSql);
+        JSONObject jsonParams = new JSONObject();
+        for (Map.Entry<String, List<String>> entityParams : params.entrySet()) {
+            JSONArray names = new JSONArray();
+            names.addAll(entityParams.getValue());
+            jsonParams.put(entityParams.getKey(), names);
+        }
+        record.put(PARAMS_KEY, jsonParams);
+        writeRecord(record);
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized void writeRow(TableNode table, TableRow row) {
+        JSONObject record = new JSONObject();
+        record.put(ORD_NUM_KEY, table.getOrdNum());
+        record.put(TABLE_KEY, table.getTableName());
+        record.put(COLUMN_KEY, table.getSqlColName());
+        record.put(PK_KEY, row.getEntityId());
+        record.put(ROW_KEY, row.getRow());
+        record.put(SQL_KEY, row.getSql());
+        writeRecord(record);
+        rowCount++;
+    }
+
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not close rows archive", e);
+        }
+    }
+
+    public static Header readHeader(String path) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                new FileInputStream(path)), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            Map<?, ?> record = line == null ? null
+                    : (Map<?, ?>) new JSONParser().parse(line, SelectQuery.ORDERED_CONTAINER_FACTORY);
+            if (record == null || !record.containsKey(CONFIGURATION_KEY)) {
+                throw new UnexpectedException("Rows archive [{}] has no configuration, export rows again", path);
+            }
+            Number pid = (Number) record.get(PID_KEY);
+            return new Header(SelectQuery.fromResolvedConfiguration((List<?>) record.get(CONFIGURATION_KEY)),
+                    pid == null ? null : pid.longValue());
+        } catch (IOException | ParseException | ClassCastException e) {
+            throw new UnexpectedException("Can not read rows archive [{}]", e, path);
+        }
+    }
+
+    /**
+     * Passes records of the archive to the handlers in the order they were written
+     */
+    public static void read(String path, BiConsumer<String, Map<String, List<String>>> paramsHandler,
+            RowHandler rowHandler) {
+        JSONParser parser = new JSONParser();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                new FileInputStream(path)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JSONObject record = (JSONObject) parser.parse(line);
+                if (record.containsKey(CONFIGURATION_KEY)) {
+                    continue;
+                }
+                if (record.containsKey(PARAMS_SQL_KEY)) {
+                    paramsHandler.accept((String) record.get(PARAMS_SQL_KEY), readParams(record));
+                } else {
+                    TableRow row = new TableRow((String) record.get(PK_KEY), (String) record.get(SQL_KEY),
+                            ((Number) record.get(ROW_KEY)).intValue());
+                    rowHandler.accept(((Number) record.get(ORD_NUM_KEY)).intValue(),
+                            (String) record.get(TABLE_KEY), (String) record.get(COLUMN_KEY), row);
+                }
+            }
+        } catch (IOException | ParseException | ClassCastException e) {
+            throw new UnexpectedException("Can not read rows archive [{}]", e, path);
+        }
+    }
+
+    private static Map<String, List<String>> readParams(JSONObject record) {
+        Map<String, List<String>> params = new HashMap<>();
+        JSONObject jsonParams = (JSONObject) record.get(PARAMS_KEY);
+        for (Object entityId : jsonParams.keySet()) {
+            List<String> names = new ArrayList<>();
+            for (Object name : (JSONArray) jsonParams.get(entityId)) {
+                names.add((String) name);
+            }
+            params.put((String) entityId, names);
+        }
+        return params;
+    }
+
+    private void writeRecord(JSONObject record) {
+        try {
+            record.writeJSONString(writer);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not write to rows archive", e);
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.vo.SqlStatementType;
+import gudusoft.gsqlparser.ETokenType;
+import gudusoft.gsqlparser.TCustomSqlStatement;
+import gudusoft.gsqlparser.TGSqlParser;
+import gudusoft.gsqlparser.TSourceToken;
+
+import java.util.List;
+
+/**
+ * Analysis of one SQL text. The text is parsed at most once, statement type, bind variables and
+ * transformations are taken from the same statement and token lists.
+ */
+public class SqlAnalysis {
+
+    private final String sqlText;
+
+    private TGSqlParser parser;
+    private RuntimeException parsingException;
+    private SqlStatementType statementType;
+
+    public SqlAnalysis(String sqlText) {
+        this.sqlText = sqlText;
+    }
+
+    public String getSqlText() {
+        return sqlText;
+    }
+
+    public TGSqlParser getParser() {
+        if (parser == null && parsingException == null) {
+            try {
+                parser = SqlParser.getParser(sqlText);
+            } catch (RuntimeException e) {
+                parsingException = e;
+            }
+        }
+        if (parsingException != null) {
+            throw parsingException;
+        }
+        return parser;
+    }
+
+    public boolean isSelectStatement() {
+        if (StringUtils.isBlank(sqlText)) {
+            return false;
+        }
+        return SqlParser.isSelectStatement(getParser());
+    }
+
+    public boolean isPlsqlBlock() {
+        if (StringUtils.isBlank(sqlText)) {
+            return false;
+        }
+        return SqlParser.isPlsqlBlock(getParser());
+    }
+
+    public SqlStatementType getStatementType() {
+        if (statementType == null) {
+            statementType = recognizeStatementType();
+        }
+        return statementType;
+    }
+
+    public List<String> getParams() {
+        return SqlParser.getParams(getParser());
+    }
+
+    public String removeIntoClause() {
+        return removeIntoClause(null);
+    }
+
+    /**
+     * Removes INTO clause and replaces bind variables in one pass over the tokens of the statement. Like
+     * {@link SqlParser#replaceBindVars(String, String)} applied after {@link SqlParser#removeIntoClause(String)},
+     * only the first statement is returned, text after it is dropped, but the intermediate text is not parsed.
+     */
+    public String removeIntoClauseAndReplaceBindVars(String replacedByVal) {
+        TGSqlParser sqlParser = getParser();
+        if (sqlParser.sqlstatements == null || sqlParser.sqlstatements.size() != 1
+                || sqlParser.sqlstatements.get(0).getStartToken() == null
+                || sqlParser.sqlstatements.get(0).getEndToken() == null) {
+            return SqlParser.replaceBindVars(removeIntoClause(), replacedByVal);
+        }
+        TCustomSqlStatement statement = sqlParser.sqlstatements.get(0);
+        return removeIntoClause(replacedByVal, statement.getStartToken(), statement.getEndToken());
+    }
+
+    private String removeIntoClause(String bindVarReplacement) {
+        return removeIntoClause(bindVarReplacement, null, null);
+    }
+
+    /**
+     * @param startToken first token to write, null to write from the first token of the text
+     * @param endToken   last token to write, null to write up to the last token of the text
+     */
+    private String removeIntoClause(String bindVarReplacement, TSourceToken startToken, TSourceToken endToken) {
+        TGSqlParser sqlParser = getParser();
+        StringBuilder newSql = new StringBuilder(sqlText.length());
+        boolean isIntoClause = false;
+        boolean isStarted = startToken == null;
+        for (int i = 0; i < sqlParser.sourcetokenlist.size(); i++) {
+            TSourceToken st = sqlParser.sourcetokenlist.get(i);
+            if (!isStarted) {
+                if (st != startToken) {
+                    continue;
+                }
+                isStarted = true;
+            }
+            if (!isIntoClause) {
+                if (st.tokentype == ETokenType.ttkeyword && st.toString().equalsIgnoreCase("into")) {
+                    isIntoClause = true;
+                } else if (bindVarReplacement != null && st.tokentype == ETokenType.ttbindvar) {
+                    newSql.append(bindVarReplacement);
+                } else {
+                    newSql.append(st.toString());
+                }
+            } else if (st.tokentype == ETokenType.ttkeyword && st.toString().equalsIgnoreCase("from")) {
+                newSql.append(st.toString());
+                isIntoClause = false;
+            }
+            if (st == endToken) {
+                break;
+            }
+        }
+        return newSql.toString();
+    }
+
+    private SqlStatementType recognizeStatementType() {
+        if (sqlText.startsWith("declare") || sqlText.startsWith("begin") || sqlText.startsWith("if")) {
+            return SqlStatementType.PL_SQL;
+        }
+
+        boolean selectStatementCheck;
+        try {
+            selectStatementCheck = isSelectStatement();
+        } catch (Exception e) {
+            selectStatementCheck = false;
+        }
+
+        if (selectStatementCheck) {
+            return SqlStatementType.SELECT;
+        }
+
+        boolean plsqlBlockCheck;
+        try {
+            plsqlBlockCheck = isPlsqlBlock();
+        } catch (Exception e) {
+            plsqlBlockCheck = false;
+        }
+
+        if (!plsqlBlockCheck) {
+            SqlAnalysis withBeginEnd = new SqlAnalysis("begin " + sqlText + " end;");
+            try {
+                plsqlBlockCheck = withBeginEnd.isPlsqlBlock();
+            } catch (Exception e) {
+                plsqlBlockCheck = false;
+            }
+        }
+
+        if (!plsqlBlockCheck) {
+            return SqlStatementType.EMPTY;
+        } else {
+            return SqlStatementType.PL_SQL;
+        }
+    }
+
+}
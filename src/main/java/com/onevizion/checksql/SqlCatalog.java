@@ -0,0 +1,427 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.exception.SqlParsingException;
+import com.onevizion.checksql.exception.UnexpectedException;
+import com.onevizion.checksql.vo.SqlError;
+import com.onevizion.checksql.vo.TableValue;
+import gudusoft.gsqlparser.ETableSource;
+import gudusoft.gsqlparser.ETokenType;
+import gudusoft.gsqlparser.TCustomSqlStatement;
+import gudusoft.gsqlparser.TGSqlParser;
+import gudusoft.gsqlparser.TSourceToken;
+import gudusoft.gsqlparser.TStatementList;
+import gudusoft.gsqlparser.nodes.TObjectName;
+import gudusoft.gsqlparser.nodes.TObjectNameList;
+import gudusoft.gsqlparser.nodes.TTable;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Objects, columns and package functions of the test schema loaded once per run. SELECT statements are checked
+ * against it before compilation: a reference to a missing table or a missing column of a known table fails
+ * without a DB round trip. Statements which use only known tables, columns and functions, with each column
+ * resolved to one table, pass. All other statements are unknown and have to be compiled.
+ */
+public class SqlCatalog {
+
+    private static final String FIND_SCHEMA = "select user from dual";
+
+    private static final String FIND_OBJECTS = "select owner, object_name, object_type from all_objects where object_type in ('TABLE', 'VIEW', 'MATERIALIZED VIEW', 'SYNONYM', 'SEQUENCE', 'FUNCTION', 'PROCEDURE', 'PACKAGE', 'TYPE')";
+
+    private static final String FIND_SYNONYMS = "select owner, synonym_name, table_owner, table_name, db_link from all_synonyms where owner in (user, 'PUBLIC')";
+
+    private static final String FIND_COLUMNS = "select owner, table_name, column_name from all_tab_columns where owner = user";
+
+    private static final String FIND_PACKAGE_FUNCTIONS = "select distinct package_name, object_name from all_arguments where owner = user and package_name is not null";
+
+    private static final String PUBLIC_OWNER = "PUBLIC";
+
+    private static final String SCHEMA_KEY = "schema";
+    private static final String OBJECTS_KEY = "objects";
+    private static final String SYNONYMS_KEY = "synonyms";
+    private static final String COLUMNS_KEY = "columns";
+    private static final String PACKAGE_FUNCTIONS_KEY = "packageFunctions";
+
+    private static final Set<String> PSEUDO_COLUMNS = new HashSet<>(Arrays.asList("ROWID", "ROWNUM", "LEVEL",
+            "ORA_ROWSCN", "SYSDATE", "SYSTIMESTAMP", "USER", "UID", "NULL", "NEXTVAL", "CURRVAL",
+            "CONNECT_BY_ISLEAF", "CONNECT_BY_ISCYCLE", "*"));
+
+    // Built-in functions and keywords which may be followed by a parenthesis
+    private static final Set<String> BUILT_IN_CALLS = new HashSet<>(Arrays.asList("SELECT", "FROM", "WHERE", "IN",
+            "EXISTS", "JOIN", "ON", "USING", "AS", "AND", "OR", "NOT", "WHEN", "THEN", "ELSE", "CASE", "ANY", "ALL",
+            "SOME", "WITH", "OVER", "PARTITION", "BY", "KEEP", "WITHIN", "GROUP", "HAVING", "UNION", "MINUS",
+            "INTERSECT", "VALUES", "LIKE", "BETWEEN", "DISTINCT", "PRIOR", "NVL", "NVL2", "DECODE", "COALESCE",
+            "NULLIF", "TO_CHAR", "TO_DATE", "TO_NUMBER", "TO_TIMESTAMP", "TO_CLOB", "TO_NCHAR", "TRUNC", "ROUND",
+            "SUBSTR", "INSTR", "LENGTH", "UPPER", "LOWER", "INITCAP", "TRIM", "LTRIM", "RTRIM", "LPAD", "RPAD",
+            "REPLACE", "TRANSLATE", "CONCAT", "CHR", "ASCII", "ABS", "CEIL", "FLOOR", "MOD", "POWER", "SQRT",
+            "SIGN", "GREATEST", "LEAST", "COUNT", "SUM", "MIN", "MAX", "AVG", "LISTAGG", "ROW_NUMBER", "RANK",
+            "DENSE_RANK", "LAG", "LEAD", "FIRST_VALUE", "LAST_VALUE", "CAST", "EXTRACT", "ADD_MONTHS",
+            "MONTHS_BETWEEN", "LAST_DAY", "NEXT_DAY", "SYS_CONTEXT", "REGEXP_LIKE", "REGEXP_SUBSTR",
+            "REGEXP_REPLACE", "REGEXP_INSTR", "REGEXP_COUNT", "VARCHAR2", "NVARCHAR2", "CHAR", "NUMBER", "RAW",
+            "TIMESTAMP"));
+
+    private final String schema;
+    private final Set<String> localObjects = new HashSet<>();
+    private final Set<String> qualifiedObjects = new HashSet<>();
+    private final Map<String, String> synonymTargets = new HashMap<>();
+    private final Map<String, Set<String>> columns = new HashMap<>();
+    private final Set<String> functions = new HashSet<>();
+
+    // Dictionary rows in the order they are added, so a snapshot is replayed the same way
+    private final JSONArray objectRows = new JSONArray();
+    private final JSONArray synonymRows = new JSONArray();
+    private final JSONArray columnRows = new JSONArray();
+    private final JSONArray packageFunctionRows = new JSONArray();
+
+    public SqlCatalog(String schema) {
+        this.schema = normalize(schema);
+    }
+
+    public static SqlCatalog load(JdbcTemplate jdbcTemplate) {
+        SqlCatalog catalog = new SqlCatalog(jdbcTemplate.queryForObject(FIND_SCHEMA, String.class));
+        jdbcTemplate.query(FIND_OBJECTS, (RowCallbackHandler) rs -> catalog.addObject(rs.getString("owner"),
+                rs.getString("object_name"), rs.getString("object_type")));
+        jdbcTemplate.query(FIND_SYNONYMS, (RowCallbackHandler) rs -> catalog.addSynonym(rs.getString("owner"),
+                rs.getString("synonym_name"), rs.getString("table_owner"), rs.getString("table_name"),
+                rs.getString("db_link")));
+        jdbcTemplate.query(FIND_COLUMNS, (RowCallbackHandler) rs -> catalog.addColumn(rs.getString("owner"),
+                rs.getString("table_name"), rs.getString("column_name")));
+        jdbcTemplate.query(FIND_PACKAGE_FUNCTIONS, (RowCallbackHandler) rs -> catalog.addPackageFunction(
+                rs.getString("package_name"), rs.getString("object_name")));
+        return catalog;
+    }
+
+    /**
+     * Reads a snapshot saved by {@link #save(String)}, so statements may be checked without a test DB
+     */
+    public static SqlCatalog read(String path) {
+        JSONObject snapshot;
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            snapshot = (JSONObject) new JSONParser().parse(reader);
+        } catch (IOException | ParseException | ClassCastException e) {
+            throw new UnexpectedException("Can not read catalog snapshot [{}]", e, path);
+        }
+
+        SqlCatalog catalog = new SqlCatalog((String) snapshot.get(SCHEMA_KEY));
+        for (String[] row : getRows(snapshot, OBJECTS_KEY, 3)) {
+            catalog.addObject(row[0], row[1], row[2]);
+        }
+        for (String[] row : getRows(snapshot, SYNONYMS_KEY, 5)) {
+            catalog.addSynonym(row[0], row[1], row[2], row[3], row[4]);
+        }
+        for (String[] row : getRows(snapshot, COLUMNS_KEY, 3)) {
+            catalog.addColumn(row[0], row[1], row[2]);
+        }
+        for (String[] row : getRows(snapshot, PACKAGE_FUNCTIONS_KEY, 2)) {
+            catalog.addPackageFunction(row[0], row[1]);
+        }
+        return catalog;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void save(String path) {
+        JSONObject snapshot = new JSONObject();
+        snapshot.put(SCHEMA_KEY, schema);
+        snapshot.put(OBJECTS_KEY, objectRows);
+        snapshot.put(SYNONYMS_KEY, synonymRows);
+        snapshot.put(COLUMNS_KEY, columnRows);
+        snapshot.put(PACKAGE_FUNCTIONS_KEY, packageFunctionRows);
+
+        File file = new File(path);
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new UnexpectedException("Can not create directory [{}]", dir.getPath());
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            snapshot.writeJSONString(writer);
+        } catch (IOException e) {
+            throw new UnexpectedException("Can not save catalog snapshot to [{}]", e, path);
+        }
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return qualifiedObjects.size();
+    }
+
+    public void addObject(String owner, String name, String type) {
+        addRow(objectRows, owner, name, type);
+        String qualifiedName = normalize(owner) + "." + normalize(name);
+        qualifiedObjects.add(qualifiedName);
+        if (schema.equals(normalize(owner))) {
+            localObjects.add(normalize(name));
+            if ("FUNCTION".equals(type) || "TYPE".equals(type)) {
+                functions.add(normalize(name));
+            }
+        }
+    }
+
+    public void addSynonym(String owner, String name, String tableOwner, String tableName, String dbLink) {
+        addRow(synonymRows, owner, name, tableOwner, tableName, dbLink);
+        String normalizedOwner = normalize(owner);
+        if (!schema.equals(normalizedOwner) && !PUBLIC_OWNER.equals(normalizedOwner)) {
+            return;
+        }
+        // Own objects hide public synonyms with the same name
+        if (!localObjects.add(normalize(name)) && PUBLIC_OWNER.equals(normalizedOwner)) {
+            return;
+        }
+        if (dbLink == null && tableOwner != null) {
+            synonymTargets.put(normalize(name), normalize(tableOwner) + "." + normalize(tableName));
+        }
+    }
+
+    public void addColumn(String owner, String tableName, String columnName) {
+        addRow(columnRows, owner, tableName, columnName);
+        columns.computeIfAbsent(normalize(owner) + "." + normalize(tableName), name -> new HashSet<>())
+               .add(normalize(columnName));
+    }
+
+    public void addPackageFunction(String packageName, String functionName) {
+        addRow(packageFunctionRows, packageName, functionName);
+        functions.add(normalize(packageName) + "." + normalize(functionName));
+    }
+
+    /**
+     * @return failed value when a table or a qualified column does not exist, passed value when all references
+     * are known, null when the statement should be compiled to get a result
+     */
+    public TableValue<Boolean> check(String selectSql) {
+        TGSqlParser parser;
+        try {
+            parser = SqlParser.getParser(selectSql);
+        } catch (SqlParsingException e) {
+            // Grammar of the parser differs from Oracle in details, so only Oracle reports syntax errors
+            return null;
+        }
+
+        boolean[] known = {true};
+        SqlError sqlErr = checkStatements(parser.sqlstatements, known);
+        if (sqlErr != null) {
+            return new TableValue<>(false, sqlErr);
+        } else if (known[0] && hasOnlyKnownCalls(parser)) {
+            return new TableValue<>(true, null);
+        }
+        return null;
+    }
+
+    private SqlError checkStatements(TStatementList statements, boolean[] known) {
+        if (statements == null) {
+            return null;
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            TCustomSqlStatement statement = statements.get(i);
+            SqlError sqlErr = checkTables(statement, known);
+            if (sqlErr == null) {
+                sqlErr = checkStatements(statement.getStatements(), known);
+            }
+            if (sqlErr != null) {
+                return sqlErr;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Statement stays known only when each column is linked to the table it is qualified by, or it is the only
+     * table of the statement. Parser links an unqualified column of a join to one of the tables by guess and
+     * does not link columns with an unknown qualifier at all, so such statements are compiled by Oracle
+     */
+    private SqlError checkTables(TCustomSqlStatement statement, boolean[] known) {
+        TObjectNameList orphanColumns = statement.getOrphanColumns();
+        if (orphanColumns != null && orphanColumns.size() > 0) {
+            known[0] = false;
+        }
+        if (statement.tables == null) {
+            return null;
+        }
+        boolean singleTable = statement.tables.size() == 1;
+        for (int i = 0; i < statement.tables.size(); i++) {
+            TTable table = statement.tables.getTable(i);
+            // Columns of inline views and WITH queries are not in the catalog
+            if ((table.getTableType() == ETableSource.subquery || table.isCTEName())
+                    && table.getLinkedColumns() != null && table.getLinkedColumns().size() > 0) {
+                known[0] = false;
+            }
+            if (table.getTableType() == ETableSource.subquery && table.getSubquery() != null) {
+                SqlError sqlErr = checkTables(table.getSubquery(), known);
+                if (sqlErr == null) {
+                    sqlErr = checkStatements(table.getSubquery().getStatements(), known);
+                }
+                if (sqlErr != null) {
+                    return sqlErr;
+                }
+                continue;
+            } else if (table.isCTEName()) {
+                continue;
+            }
+            String tableName = normalize(table.getFullName());
+            if (table.getTableType() != ETableSource.objectname || tableName.contains("@")) {
+                known[0] = false;
+                continue;
+            }
+            if (!hasObject(tableName)) {
+                return createError("PRECHECK-TABLE", "Table or view [" + table.getFullName()
+                        + "] does not exist in the test schema");
+            }
+
+            Set<String> tableColumns = getColumns(tableName);
+            TObjectNameList linkedColumns = table.getLinkedColumns();
+            for (int j = 0; linkedColumns != null && j < linkedColumns.size(); j++) {
+                TObjectName column = linkedColumns.getObjectName(j);
+                String columnName = normalize(column.getColumnNameOnly());
+                if (columnName.isEmpty() || PSEUDO_COLUMNS.contains(columnName)) {
+                    continue;
+                }
+                boolean qualified = isQualified(column);
+                boolean qualifiedByTable = qualified && isQualifiedBy(column, table);
+                if (qualified ? !qualifiedByTable : !singleTable) {
+                    known[0] = false;
+                }
+                if (tableColumns == null) {
+                    known[0] = false;
+                } else if (!tableColumns.contains(columnName)) {
+                    // Unqualified columns may be linked to a wrong table by the parser, so only Oracle reports them
+                    if (qualifiedByTable) {
+                        return createError("PRECHECK-COLUMN", "Column [" + column + "] does not exist in ["
+                                + table.getFullName() + "]");
+                    }
+                    known[0] = false;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Calls of functions missing in the catalog make the statement unknown, since they may be either built-in
+     * or invalid
+     */
+    private boolean hasOnlyKnownCalls(TGSqlParser parser) {
+        String prev = null;
+        String prevPrev = null;
+        String prevPrevPrev = null;
+        boolean prevIsName = false;
+        for (int i = 0; i < parser.sourcetokenlist.size(); i++) {
+            TSourceToken st = parser.sourcetokenlist.get(i);
+            if (st.tokentype == ETokenType.ttwhitespace || st.tokentype == ETokenType.ttreturn
+                    || st.tokentype == ETokenType.ttsimplecomment || st.tokentype == ETokenType.ttbracketedcomment) {
+                continue;
+            }
+            String text = st.toString();
+            if ("(".equals(text) && prevIsName) {
+                String name = normalize(prev);
+                if (".".equals(prevPrev)) {
+                    String qualifiedName = normalize(prevPrevPrev) + "." + name;
+                    if (!functions.contains(qualifiedName) && !qualifiedObjects.contains(qualifiedName)) {
+                        return false;
+                    }
+                } else if (!BUILT_IN_CALLS.contains(name) && !functions.contains(name)) {
+                    return false;
+                }
+            }
+            prevPrevPrev = prevPrev;
+            prevPrev = prev;
+            prev = text;
+            prevIsName = st.tokentype == ETokenType.ttidentifier || st.tokentype == ETokenType.ttkeyword;
+        }
+        return true;
+    }
+
+    private boolean hasObject(String name) {
+        if (name.contains(".")) {
+            return qualifiedObjects.contains(name);
+        }
+        return localObjects.contains(name);
+    }
+
+    private Set<String> getColumns(String name) {
+        if (name.contains(".")) {
+            return columns.get(name);
+        }
+        Set<String> tableColumns = columns.get(schema + "." + name);
+        if (tableColumns == null && synonymTargets.containsKey(name)) {
+            tableColumns = columns.get(synonymTargets.get(name));
+        }
+        return tableColumns;
+    }
+
+    private boolean isQualified(TObjectName column) {
+        return column.toString().indexOf('.') != -1;
+    }
+
+    private boolean isQualifiedBy(TObjectName column, TTable table) {
+        String name = normalize(column.toString());
+        int dotIndex = name.lastIndexOf('.');
+        if (dotIndex == -1) {
+            return false;
+        }
+        String qualifier = name.substring(0, dotIndex);
+        return qualifier.equals(normalize(table.getAliasName())) || qualifier.equals(normalize(table.getFullName()))
+                || qualifier.equals(normalize(table.getName()));
+    }
+
+    private SqlError createError(String errType, String errMsg) {
+        SqlError sqlErr = new SqlError(errType);
+        sqlErr.setErrMsg(errMsg);
+        return sqlErr;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addRow(JSONArray rows, String... values) {
+        JSONArray row = new JSONArray();
+        row.addAll(Arrays.asList(values));
+        rows.add(row);
+    }
+
+    private static List<String[]> getRows(JSONObject snapshot, String key, int size) {
+        List<String[]> rows = new ArrayList<>();
+        JSONArray jsonRows = (JSONArray) snapshot.get(key);
+        if (jsonRows == null) {
+            return rows;
+        }
+        for (Object jsonRow : jsonRows) {
+            JSONArray values = (JSONArray) jsonRow;
+            if (values.size() != size) {
+                throw new UnexpectedException("Invalid row {} of [{}] in catalog snapshot", values, key);
+            }
+            String[] row = new String[size];
+            for (int i = 0; i < size; i++) {
+                row[i] = (String) values.get(i);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.replace("\"", "").trim().toUpperCase(Locale.ROOT);
+    }
+
+}
@@ -182,15 +182,19 @@ public class SqlParser {
         boolean isPlsql = false;
 
         if (StringUtils.isNotBlank(sqlText)) {
-            TGSqlParser sqlParser = getParser(sqlText);
+            isPlsql = isPlsqlBlock(getParser(sqlText));
+        }
+        return isPlsql;
+    }
 
-            try {
-                TCommonBlock block = (TCommonBlock) sqlParser.sqlstatements.get(0);
-                TCustomSqlStatement body = block.getBodyStatements().get(0);
-                isPlsql = StringUtils.isNotBlank(body.toString());
-            } catch (ClassCastException s) {
-                isPlsql = false;
-            }
+    public static boolean isPlsqlBlock(TGSqlParser sqlParser) {
+        boolean isPlsql;
+        try {
+            TCommonBlock block = (TCommonBlock) sqlParser.sqlstatements.get(0);
+            TCustomSqlStatement body = block.getBodyStatements().get(0);
+            isPlsql = StringUtils.isNotBlank(body.toString());
+        } catch (ClassCastException s) {
+            isPlsql = false;
         }
         return isPlsql;
     }
@@ -226,45 +230,29 @@ public class SqlParser {
     }
 
     public static String removeIntoClause(String sql) {
-        TGSqlParser parser = getParser(sql);
-        List<String> tokens = new ArrayList<String>();
-        boolean isIntoClause = false;
-        for (int i = 0; i < parser.sourcetokenlist.size(); i++) {
-            TSourceToken st = parser.sourcetokenlist.get(i);
-            if (!isIntoClause) {
-                if (st.tokentype != ETokenType.ttkeyword
-                        || (st.tokentype == ETokenType.ttkeyword && !st.toString().equalsIgnoreCase("into"))) {
-                    tokens.add(st.toString());
-                } else {
-                    isIntoClause = true;
-                }
-            } else {
-                if (st.tokentype == ETokenType.ttkeyword && st.toString().equalsIgnoreCase("from")) {
-                    tokens.add(st.toString());
-                    isIntoClause = false;
-                }
-            }
-        }
-        String newSql = StringUtils.concatList(tokens, "");
-        return newSql;
+        return new SqlAnalysis(sql).removeIntoClause();
     }
 
     public static boolean isSelectStatement(String sqlText) {
         boolean isSelect = false;
 
         if (StringUtils.isNotBlank(sqlText)) {
-            TGSqlParser sqlParser = getParser(sqlText);
+            isSelect = isSelectStatement(getParser(sqlText));
+        }
+        return isSelect;
+    }
 
-            if (sqlParser.sqlstatements == null || sqlParser.sqlstatements.size() == 0) {
-                isSelect = false;
+    public static boolean isSelectStatement(TGSqlParser sqlParser) {
+        boolean isSelect;
+        if (sqlParser.sqlstatements == null || sqlParser.sqlstatements.size() == 0) {
+            isSelect = false;
+        } else {
+            TCustomSqlStatement customSqlStatement = sqlParser.sqlstatements.get(0);
+            if (customSqlStatement instanceof TSelectSqlStatement) {
+                TSelectSqlStatement selectSqlStatement = (TSelectSqlStatement) customSqlStatement;
+                isSelect = StringUtils.isNotBlank(selectSqlStatement.toString());
             } else {
-                TCustomSqlStatement customSqlStatement = sqlParser.sqlstatements.get(0);
-                if (customSqlStatement instanceof TSelectSqlStatement) {
-                    TSelectSqlStatement selectSqlStatement = (TSelectSqlStatement) customSqlStatement;
-                    isSelect = StringUtils.isNotBlank(selectSqlStatement.toString());
-                } else {
-                    isSelect = false;
-                }
+                isSelect = false;
             }
         }
         return isSelect;
@@ -292,44 +280,7 @@ public class SqlParser {
     }
 
     public static SqlStatementType recognizeSelectStatementAndPlSql(String sqlText) {
-        boolean selectStatementCheck = false;
-        boolean plsqlBlockCheck = false;
-
-        if (!sqlText.startsWith("declare") && !sqlText.startsWith("begin") && !sqlText.startsWith("if")) {
-            try {
-                selectStatementCheck = isSelectStatement(sqlText);
-            } catch (Exception e) {
-                selectStatementCheck = false;
-            }
-        } else {
-            return SqlStatementType.PL_SQL;
-        }
-
-        if (selectStatementCheck) {
-            return SqlStatementType.SELECT;
-        }
-
-        try {
-            plsqlBlockCheck = isPlsqlBlock(sqlText);
-        } catch (Exception e) {
-            plsqlBlockCheck = false;
-        }
-
-        if (!plsqlBlockCheck) {
-            String sqlTextWithBeginEnd = "begin " + sqlText + " end;";
-
-            try {
-                plsqlBlockCheck = isPlsqlBlock(sqlTextWithBeginEnd);
-            } catch (Exception e) {
-                plsqlBlockCheck = false;
-            }
-        }
-
-        if (!plsqlBlockCheck) {
-            return SqlStatementType.EMPTY;
-        } else {
-            return SqlStatementType.PL_SQL;
-        }
+        return new SqlAnalysis(sqlText).getStatementType();
     }
 
 }
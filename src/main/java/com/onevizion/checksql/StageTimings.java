@@ -0,0 +1,181 @@
+package com.onevizion.checksql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time spent by validation of one table column in each stage. Durations are counted in a histogram with
+ * 4 buckets per power of two, so percentiles are exact up to 25% and recording a duration does not allocate.
+ * Only the slowest rows are kept.
+ */
+public class StageTimings {
+
+    public enum Stage {
+
+        // Wait for the next row of the source query
+        FETCH("fetch"),
+        // Reading the row values including CLOBs
+        READ("read"),
+        // Recognizing the statement type
+        PARSE("parse"),
+        // Removing INTO clause and replacing bind variables
+        REWRITE("rewrite"),
+        // Checking SELECT statements against the test schema catalog
+        PRECHECK("precheck"),
+        // Compilation of a batch in the test schema including reading of compile errors
+        COMPILE("compile"),
+        // Reading compile errors from all_errors
+        ERRORS("errors");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    private static final int EXACT_BUCKETS = 8;
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = EXACT_BUCKETS + (63 - 3) * SUB_BUCKETS;
+
+    private final int maxSlowRows;
+    private final Histogram[] histograms = new Histogram[Stage.values().length];
+    private final PriorityQueue<SlowRow> slowRows = new PriorityQueue<>(
+            Comparator.comparingLong(SlowRow::getNanos));
+
+    public StageTimings(int maxSlowRows) {
+        this.maxSlowRows = maxSlowRows;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public void recordRow(String entityId, long nanos) {
+        if (maxSlowRows == 0) {
+            return;
+        }
+        synchronized (slowRows) {
+            if (slowRows.size() < maxSlowRows) {
+                slowRows.add(new SlowRow(entityId, nanos));
+            } else if (slowRows.peek().nanos < nanos) {
+                slowRows.poll();
+                slowRows.add(new SlowRow(entityId, nanos));
+            }
+        }
+    }
+
+    public long getCount(Stage stage) {
+        return histograms[stage.ordinal()].count.get();
+    }
+
+    public long getTotalNanos(Stage stage) {
+        return histograms[stage.ordinal()].totalNanos.get();
+    }
+
+    public long getMaxNanos(Stage stage) {
+        return histograms[stage.ordinal()].maxNanos.get();
+    }
+
+    /**
+     * @return upper bound of the bucket the percentile falls in
+     */
+    public long getPercentileNanos(Stage stage, double percentile) {
+        return histograms[stage.ordinal()].getPercentile(percentile);
+    }
+
+    /**
+     * @return the slowest rows, the slowest first
+     */
+    public List<SlowRow> getSlowRows() {
+        List<SlowRow> rows;
+        synchronized (slowRows) {
+            rows = new ArrayList<>(slowRows);
+        }
+        rows.sort(Comparator.comparingLong(SlowRow::getNanos).reversed());
+        return rows;
+    }
+
+    private static int getBucket(long nanos) {
+        if (nanos < EXACT_BUCKETS) {
+            return nanos < 0 ? 0 : (int) nanos;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exp - 2)) & (SUB_BUCKETS - 1);
+        return EXACT_BUCKETS + (exp - 3) * SUB_BUCKETS + sub;
+    }
+
+    private static long getBucketUpperBound(int bucket) {
+        if (bucket < EXACT_BUCKETS) {
+            return bucket;
+        }
+        int exp = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 3;
+        int sub = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1L) << (exp - 2)) - 1;
+    }
+
+    private static class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            buckets.incrementAndGet(getBucket(nanos));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private long getPercentile(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(getBucketUpperBound(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+    }
+
+    public static class SlowRow {
+
+        private final String entityId;
+        private final long nanos;
+
+        private SlowRow(String entityId, long nanos) {
+            this.entityId = entityId;
+            this.nanos = nanos;
+        }
+
+        public String getEntityId() {
+            return entityId;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+    }
+
+}
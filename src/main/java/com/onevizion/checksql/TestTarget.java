@@ -0,0 +1,65 @@
+package com.onevizion.checksql;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Additional test DB schema which rows are compiled in besides the main test schema. Each target has own pool,
+ * workers and failure counts per table ordinal, so one extraction is validated against several schemas at once.
+ */
+public class TestTarget {
+
+    private final String testNum;
+    private final String schema;
+    private final DataSource dataSource;
+    private final Long pid;
+    private final List<CheckSqlWorker> workers = new ArrayList<>();
+    private final BlockingQueue<CheckSqlWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final AtomicIntegerArray tableErrCounts;
+
+    public TestTarget(String testNum, String schema, DataSource dataSource, Long pid, int tablesCount) {
+        this.testNum = testNum;
+        this.schema = schema;
+        this.dataSource = dataSource;
+        this.pid = pid;
+        tableErrCounts = new AtomicIntegerArray(tablesCount);
+    }
+
+    public String getTestNum() {
+        return testNum;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public Long getPid() {
+        return pid;
+    }
+
+    public List<CheckSqlWorker> getWorkers() {
+        return workers;
+    }
+
+    public void addWorker(CheckSqlWorker worker) {
+        workers.add(worker);
+        idleWorkers.add(worker);
+    }
+
+    public BlockingQueue<CheckSqlWorker> getIdleWorkers() {
+        return idleWorkers;
+    }
+
+    public AtomicIntegerArray getTableErrCounts() {
+        return tableErrCounts;
+    }
+
+}
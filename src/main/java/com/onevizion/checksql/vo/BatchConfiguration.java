@@ -0,0 +1,39 @@
+package com.onevizion.checksql.vo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchConfiguration {
+
+    private String batchFile;
+    private int threads = 1;
+    private List<List<String>> entries = new ArrayList<>();
+
+    public String getBatchFile() {
+        return batchFile;
+    }
+
+    public void setBatchFile(String batchFile) {
+        this.batchFile = batchFile;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Command line arguments of each schema processed by the batch
+     */
+    public List<List<String>> getEntries() {
+        return entries;
+    }
+
+    public void addEntry(List<String> entry) {
+        entries.add(entry);
+    }
+
+}
@@ -0,0 +1,260 @@
+package com.onevizion.checksql.vo;
+
+import com.onevizion.checksql.BindVarRewriter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bind variable substitutions and procedure wrapper of one table column. Built-in rules of known tables may be
+ * overridden by the "bind" object of the column in checksql.json. Rules are compiled once when the configuration
+ * is loaded, so validation of a row does not depend on the table name.
+ */
+public class BindRules {
+
+    public static final String BIND_KEY = "bind";
+
+    private static final String IGNORE_CASE_KEY = "ignoreCase";
+    private static final String VALUES_KEY = "values";
+    private static final String SELECT_VALUES_KEY = "selectValues";
+    private static final String ENTITY_PARAMS_SQL_KEY = "entityParamsSql";
+    private static final String ENTITY_PARAM_VALUES_KEY = "entityParamValues";
+    private static final String ENTITY_PARAMS_FIRST_KEY = "entityParamsFirst";
+    private static final String REPLACE_SQL_PARAMS_KEY = "replaceSqlParams";
+    private static final String SKIP_PLSQL_IN_SELECT_KEY = "skipPlsqlInSelect";
+    private static final String PROC_VARS_KEY = "procVars";
+    private static final String ASSIGN_VAR_KEY = "assignVar";
+
+    private static final String DEFAULT_ENTITY_PARAM_VALUE = "0";
+
+    private static final String FIND_IMP_DATA_TYPE_PARAM_SQL_PARAMS = "select imp_data_type_id, sql_parameter from imp_data_type_param";
+
+    private static final String FIND_RULE_PARAM_SQL_PARAMS = "select r.rule_id, t.ID_FIELD from rule r join rule_type t on (r.rule_type_id = t.rule_type_id)";
+
+    private static final String FIND_IMP_ENTITY_PARAM_SQL_PARAMS = "select imp_entity_id, sql_parameter from imp_entity_param";
+
+    private boolean ignoreCase;
+    private Map<String, String> values = new LinkedHashMap<>();
+    private Map<String, String> selectValues = new LinkedHashMap<>();
+    private String entityParamsSql;
+    private Map<String, String> entityParamValues = new LinkedHashMap<>();
+    private boolean entityParamsFirst = true;
+    private boolean replaceSqlParams;
+    private boolean skipPlsqlInSelect;
+    private String procVars = "v_ret_str varchar2(1000);";
+    private String assignVar = "v_ret_str";
+
+    private Map<?, ?> bind;
+    private BindVarRewriter rewriter;
+    private BindVarRewriter selectRewriter;
+
+    private BindRules() {
+    }
+
+    /**
+     * @param bind "bind" object of the column in checksql.json, null when only built-in rules are used
+     */
+    public static BindRules create(String tableName, String sqlColName, Map<?, ?> bind) {
+        BindRules rules = getDefault(tableName.toLowerCase(), sqlColName.toLowerCase());
+        if (bind != null) {
+            rules.apply(tableName + "." + sqlColName, bind);
+        }
+        rules.bind = bind;
+        rules.rewriter = rules.createRewriter(rules.values);
+        rules.selectRewriter = rules.createRewriter(rules.selectValues);
+        return rules;
+    }
+
+    /**
+     * "bind" object the rules are created from, null when only built-in rules are used
+     */
+    public Map<?, ?> getBind() {
+        return bind;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Static substitutions of PL/SQL blocks
+     */
+    public BindVarRewriter getRewriter() {
+        return rewriter;
+    }
+
+    /**
+     * Static substitutions of SELECT statements made before bind variables are replaced
+     */
+    public BindVarRewriter getSelectRewriter() {
+        return selectRewriter;
+    }
+
+    /**
+     * Query of (entity id, parameter name) pairs, parameters of the row entity are replaced in PL/SQL blocks
+     */
+    public String getEntityParamsSql() {
+        return entityParamsSql;
+    }
+
+    public String getEntityParamValue(String param) {
+        return entityParamValues.getOrDefault(param, DEFAULT_ENTITY_PARAM_VALUE);
+    }
+
+    public boolean isEntityParamsFirst() {
+        return entityParamsFirst;
+    }
+
+    public boolean isReplaceSqlParams() {
+        return replaceSqlParams;
+    }
+
+    public boolean isSkipPlsqlInSelect() {
+        return skipPlsqlInSelect;
+    }
+
+    public String getProcVars() {
+        return procVars;
+    }
+
+    public String getAssignVar() {
+        return assignVar;
+    }
+
+    private static BindRules getDefault(String tableName, String sqlColName) {
+        BindRules rules = new BindRules();
+        if ("imp_data_type".equals(tableName)) {
+            rules.entityParamsSql = FIND_IMP_DATA_TYPE_PARAM_SQL_PARAMS;
+            rules.entityParamValues.put("V_TABLE", "xitor");
+            rules.entityParamValues.put("TABLE_NAME", "xitor");
+            rules.entityParamValues.put("V_KEY_FIELD", "xitor_id");
+            rules.entityParamValues.put("V_DISPLAY_FIELD", "xitor_id");
+            rules.entityParamValues.put("KEY_FIELD", "xitor_id");
+            rules.entityParamValues.put("COLUMN_NAME", "xitor_key");
+            putImpDataTypeValues(rules.values);
+        } else if ("imp_data_type_param".equals(tableName)) {
+            putImpDataTypeValues(rules.selectValues);
+        } else if ("imp_entity".equals(tableName)) {
+            rules.entityParamsSql = FIND_IMP_ENTITY_PARAM_SQL_PARAMS;
+            rules.entityParamsFirst = false;
+            rules.skipPlsqlInSelect = true;
+            rules.procVars = "v_imp_entity list_id;";
+            rules.assignVar = "v_imp_entity";
+            rules.values.put(":VALUE", "v_imp_entity");
+            rules.values.put(":value", "v_imp_entity");
+        } else if ("imp_spec".equals(tableName)) {
+            rules.replaceSqlParams = true;
+        } else if ("rule".equals(tableName) && "sql_text".equals(sqlColName)) {
+            rules.ignoreCase = true;
+            rules.entityParamsSql = FIND_RULE_PARAM_SQL_PARAMS;
+            rules.values.put(":return_str", "v_ret_str");
+            rules.values.put(":id_num", "0");
+            rules.values.put(":pk", "0");
+            rules.values.put(":ln", "0");
+            rules.values.put(":parent_id", "0");
+            rules.values.put(":child_id", "0");
+            rules.values.put(":imp_run_id", "0");
+        } else if ("wf_template_step".equals(tableName) || "wf_step".equals(tableName)) {
+            rules.ignoreCase = true;
+            rules.values.put(":wf_workflow_id", "0");
+            rules.values.put(":key", "0");
+            rules.values.put(":subkey", "0");
+            rules.values.put(":wpkey", "0");
+        } else if ("imp_data_map".equals(tableName)) {
+            rules.values.put(":VALUE", "v_ret_str");
+            rules.values.put(":value", "v_ret_str");
+        } else if ("config_field".equals(tableName)) {
+            rules.values.put(":RETURN_STR", "v_ret_str");
+            rules.values.put(":return_str", "v_ret_str");
+        }
+        return rules;
+    }
+
+    private static void putImpDataTypeValues(Map<String, String> values) {
+        values.put(":ENTITY_PK", "0");
+        values.put(":VALUE", "0");
+        values.put(":[USER_ID]", "0");
+        values.put(":[PROGRAM_ID]", "0");
+        values.put("[DATE_FORMAT]", "p");
+        values.put("[COLUMN_NAME]", "p");
+        values.put(":TABLE_NAME", "xitor");
+        values.put(":[ENTITY_ID]", "0");
+        values.put("[USER_ID]", "0");
+        values.put("[PROGRAM_ID]", "0");
+    }
+
+    /**
+     * Substitutions of the config are tried before built-in ones, other settings replace built-in values
+     */
+    private void apply(String column, Map<?, ?> bind) {
+        for (Map.Entry<?, ?> entry : bind.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object value = entry.getValue();
+            if (IGNORE_CASE_KEY.equals(key)) {
+                ignoreCase = getBoolean(column, key, value);
+            } else if (VALUES_KEY.equals(key)) {
+                values = merge(getMap(column, key, value), values);
+            } else if (SELECT_VALUES_KEY.equals(key)) {
+                selectValues = merge(getMap(column, key, value), selectValues);
+            } else if (ENTITY_PARAMS_SQL_KEY.equals(key)) {
+                entityParamsSql = getString(column, key, value);
+            } else if (ENTITY_PARAM_VALUES_KEY.equals(key)) {
+                entityParamValues = merge(getMap(column, key, value), entityParamValues);
+            } else if (ENTITY_PARAMS_FIRST_KEY.equals(key)) {
+                entityParamsFirst = getBoolean(column, key, value);
+            } else if (REPLACE_SQL_PARAMS_KEY.equals(key)) {
+                replaceSqlParams = getBoolean(column, key, value);
+            } else if (SKIP_PLSQL_IN_SELECT_KEY.equals(key)) {
+                skipPlsqlInSelect = getBoolean(column, key, value);
+            } else if (PROC_VARS_KEY.equals(key)) {
+                procVars = getString(column, key, value);
+            } else if (ASSIGN_VAR_KEY.equals(key)) {
+                assignVar = getString(column, key, value);
+            } else {
+                throw new IllegalArgumentException("Unknown bind setting [" + key + "] of [" + column + "]");
+            }
+        }
+    }
+
+    private BindVarRewriter createRewriter(Map<String, String> values) {
+        BindVarRewriter newRewriter = new BindVarRewriter(ignoreCase);
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            newRewriter.add(value.getKey(), value.getValue());
+        }
+        return newRewriter.compile();
+    }
+
+    private static Map<String, String> merge(Map<String, String> first, Map<String, String> second) {
+        Map<String, String> merged = new LinkedHashMap<>(first);
+        for (Map.Entry<String, String> entry : second.entrySet()) {
+            merged.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return merged;
+    }
+
+    private static boolean getBoolean(String column, String key, Object value) {
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException("Bind setting [" + key + "] of [" + column + "] should be true or false");
+        }
+        return (Boolean) value;
+    }
+
+    private static String getString(String column, String key, Object value) {
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Bind setting [" + key + "] of [" + column + "] should be a string");
+        }
+        return (String) value;
+    }
+
+    private static Map<String, String> getMap(String column, String key, Object value) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Bind setting [" + key + "] of [" + column + "] should be an object");
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            map.put(String.valueOf(entry.getKey()), getString(column, key, entry.getValue()));
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.onevizion.checksql.vo;
+
+import java.util.Map;
+
+public class CompileResult extends TableValue<Boolean> {
+
+    private final boolean cacheable;
+
+    private Map<String, String> dependencies;
+
+    public CompileResult(boolean compiled, SqlError sqlError, boolean cacheable) {
+        super(compiled, sqlError);
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * False when compilation is failed not because of the SQL itself, e.g. connection is lost,
+     * so the result should not be reused for other rows
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * DDL time of each object the compiled view or procedure depends on, null when they were not read
+     */
+    public Map<String, String> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(Map<String, String> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+}
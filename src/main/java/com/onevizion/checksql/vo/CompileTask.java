@@ -0,0 +1,43 @@
+package com.onevizion.checksql.vo;
+
+public class CompileTask {
+
+    private final SqlStatementType type;
+    private final String sql;
+    private final String procVars;
+    private final String key;
+
+    private TableValue<Boolean> result;
+
+    public CompileTask(SqlStatementType type, String sql, String procVars, String key) {
+        this.type = type;
+        this.sql = sql;
+        this.procVars = procVars;
+        this.key = key;
+    }
+
+    public SqlStatementType getType() {
+        return type;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String getProcVars() {
+        return procVars;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public TableValue<Boolean> getResult() {
+        return result;
+    }
+
+    public void setResult(TableValue<Boolean> result) {
+        this.result = result;
+    }
+
+}
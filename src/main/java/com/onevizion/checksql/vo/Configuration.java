@@ -1,5 +1,8 @@
 package com.onevizion.checksql.vo;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class Configuration {
 
     private String remoteOwner;
@@ -11,6 +14,28 @@ public class Configuration {
     private String pathToConfigFile;
     private boolean useSecondTest;
     private String url;
+    private int workers = 1;
+    private String cacheDir;
+    private int fetchSize = 100;
+    private int compileBatch = 1;
+    private SelectCheckMode selectCheckMode = SelectCheckMode.VIEW;
+    private boolean bulkCompile;
+    private Integer poolSize;
+    private int maxStatements;
+    private boolean changedOnly;
+    private boolean trackDependencies;
+    private int fetchThreads = 1;
+    private int maxSqlLength = Integer.MAX_VALUE;
+    private String resultsFile;
+    private ResultsFormat resultsFormat = ResultsFormat.JSONL;
+    private boolean timings;
+    private int slowRows = 10;
+    private PrecheckMode precheckMode = PrecheckMode.OFF;
+    private String catalogFile;
+    private String catalogExport;
+    private String rowsExport;
+    private String rowsArchive;
+    private List<String> targets = new ArrayList<>();
 
     public String getRemoteOwner() {
         return remoteOwner;
@@ -84,4 +109,183 @@ public class Configuration {
         this.url = url;
     }
 
-}
\ No newline at end of file
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getCompileBatch() {
+        return compileBatch;
+    }
+
+    public void setCompileBatch(int compileBatch) {
+        this.compileBatch = compileBatch;
+    }
+
+    public SelectCheckMode getSelectCheckMode() {
+        return selectCheckMode;
+    }
+
+    public void setSelectCheckMode(SelectCheckMode selectCheckMode) {
+        this.selectCheckMode = selectCheckMode;
+    }
+
+    public boolean isBulkCompile() {
+        return bulkCompile;
+    }
+
+    public void setBulkCompile(boolean bulkCompile) {
+        this.bulkCompile = bulkCompile;
+    }
+
+    public Integer getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(Integer poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public void setMaxStatements(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    public boolean isChangedOnly() {
+        return changedOnly;
+    }
+
+    public void setChangedOnly(boolean changedOnly) {
+        this.changedOnly = changedOnly;
+    }
+
+    public boolean isTrackDependencies() {
+        return trackDependencies;
+    }
+
+    public void setTrackDependencies(boolean trackDependencies) {
+        this.trackDependencies = trackDependencies;
+    }
+
+    public int getFetchThreads() {
+        return fetchThreads;
+    }
+
+    public void setFetchThreads(int fetchThreads) {
+        this.fetchThreads = fetchThreads;
+    }
+
+    public int getMaxSqlLength() {
+        return maxSqlLength;
+    }
+
+    public void setMaxSqlLength(int maxSqlLength) {
+        this.maxSqlLength = maxSqlLength;
+    }
+
+    public String getResultsFile() {
+        return resultsFile;
+    }
+
+    public void setResultsFile(String resultsFile) {
+        this.resultsFile = resultsFile;
+    }
+
+    public ResultsFormat getResultsFormat() {
+        return resultsFormat;
+    }
+
+    public void setResultsFormat(ResultsFormat resultsFormat) {
+        this.resultsFormat = resultsFormat;
+    }
+
+    public boolean isTimings() {
+        return timings;
+    }
+
+    public void setTimings(boolean timings) {
+        this.timings = timings;
+    }
+
+    public int getSlowRows() {
+        return slowRows;
+    }
+
+    public void setSlowRows(int slowRows) {
+        this.slowRows = slowRows;
+    }
+
+    public PrecheckMode getPrecheckMode() {
+        return precheckMode;
+    }
+
+    public void setPrecheckMode(PrecheckMode precheckMode) {
+        this.precheckMode = precheckMode;
+    }
+
+    public String getCatalogFile() {
+        return catalogFile;
+    }
+
+    public void setCatalogFile(String catalogFile) {
+        this.catalogFile = catalogFile;
+    }
+
+    public String getCatalogExport() {
+        return catalogExport;
+    }
+
+    public void setCatalogExport(String catalogExport) {
+        this.catalogExport = catalogExport;
+    }
+
+    public String getRowsExport() {
+        return rowsExport;
+    }
+
+    public void setRowsExport(String rowsExport) {
+        this.rowsExport = rowsExport;
+    }
+
+    public String getRowsArchive() {
+        return rowsArchive;
+    }
+
+    public void setRowsArchive(String rowsArchive) {
+        this.rowsArchive = rowsArchive;
+    }
+
+    /**
+     * Connection strings of test schemas the rows are compiled in besides the main test schema
+     */
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    public void addTarget(String target) {
+        targets.add(target);
+    }
+
+}
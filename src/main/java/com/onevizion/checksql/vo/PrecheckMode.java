@@ -0,0 +1,30 @@
+package com.onevizion.checksql.vo;
+
+import java.util.Arrays;
+
+public enum PrecheckMode {
+
+    OFF("off"),
+    FAIL("fail"),
+    FULL("full"),
+    ONLY("only");
+
+    private String optionValue;
+
+    PrecheckMode(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static PrecheckMode getByOptionValue(String optionValue) {
+        return Arrays.stream(values())
+                     .filter(pm -> pm.getOptionValue().equalsIgnoreCase(optionValue))
+                     .findAny()
+                     .orElseThrow(() -> new IllegalArgumentException(
+                             "Not supported Precheck Mode: [" + optionValue + "]"));
+    }
+
+}
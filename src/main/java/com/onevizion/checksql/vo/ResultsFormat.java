@@ -0,0 +1,28 @@
+package com.onevizion.checksql.vo;
+
+import java.util.Arrays;
+
+public enum ResultsFormat {
+
+    JSONL("jsonl"),
+    CSV("csv");
+
+    private String optionValue;
+
+    ResultsFormat(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static ResultsFormat getByOptionValue(String optionValue) {
+        return Arrays.stream(values())
+                     .filter(rf -> rf.getOptionValue().equalsIgnoreCase(optionValue))
+                     .findAny()
+                     .orElseThrow(() -> new IllegalArgumentException(
+                             "Not supported Results Format: [" + optionValue + "]"));
+    }
+
+}
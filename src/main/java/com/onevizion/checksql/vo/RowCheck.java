@@ -0,0 +1,34 @@
+package com.onevizion.checksql.vo;
+
+public class RowCheck {
+
+    private final TableRow row;
+
+    private TableValue<CompileTask> selectPart;
+    private TableValue<CompileTask> plsqlPart;
+
+    public RowCheck(TableRow row) {
+        this.row = row;
+    }
+
+    public TableRow getRow() {
+        return row;
+    }
+
+    public TableValue<CompileTask> getSelectPart() {
+        return selectPart;
+    }
+
+    public void setSelectPart(TableValue<CompileTask> selectPart) {
+        this.selectPart = selectPart;
+    }
+
+    public TableValue<CompileTask> getPlsqlPart() {
+        return plsqlPart;
+    }
+
+    public void setPlsqlPart(TableValue<CompileTask> plsqlPart) {
+        this.plsqlPart = plsqlPart;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.onevizion.checksql.vo;
+
+import java.util.Arrays;
+
+public enum SelectCheckMode {
+
+    VIEW("view"),
+    PARSE("parse");
+
+    private String optionValue;
+
+    SelectCheckMode(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static SelectCheckMode getByOptionValue(String optionValue) {
+        return Arrays.stream(values())
+                     .filter(scm -> scm.getOptionValue().equalsIgnoreCase(optionValue))
+                     .findAny()
+                     .orElseThrow(() -> new IllegalArgumentException(
+                             "Not supported Select Check Mode: [" + optionValue + "]"));
+    }
+
+}
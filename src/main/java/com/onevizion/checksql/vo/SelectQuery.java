@@ -1,7 +1,6 @@
 package com.onevizion.checksql.vo;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
+import org.json.simple.parser.ContainerFactory;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 import org.springframework.dao.DataAccessException;
@@ -10,7 +9,9 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,11 +27,34 @@ public class SelectQuery{
             LINE_DELIMITER +
             "[" + LINE_DELIMITER +
             "  {\"table.column\": \"sql select statement\"}," + LINE_DELIMITER +
-            "  \"table.column\"" + LINE_DELIMITER +
+            "  \"table.column\"," + LINE_DELIMITER +
+            "  {\"table.column\": \"sql select statement or empty string\", \"bind\": {\"values\": {\":param\": \"0\"}}}" + LINE_DELIMITER +
             "]";
+
+    // Objects keep the order of keys, so substitution rules are applied in the order they are written
+    public static final ContainerFactory ORDERED_CONTAINER_FACTORY = new ContainerFactory() {
+        @Override
+        public Map createObjectContainer() {
+            return new LinkedHashMap();
+        }
+
+        @Override
+        public List creatArrayContainer() {
+            return new ArrayList();
+        }
+    };
     
+    private static final String TABLE_KEY = "table";
+    private static final String COLUMN_KEY = "column";
+    private static final String FROM_KEY = "from";
+    private static final String WHERE_KEY = "where";
+    private static final String PK_KEY = "pk";
+
     private List<TableNode> values = new ArrayList();
 
+    private SelectQuery() {
+    }
+
     public SelectQuery(JdbcTemplate owner1JdbcTemplate) {
         parseConfigFile(owner1JdbcTemplate, FILENAME);
     }
@@ -41,31 +65,43 @@ public class SelectQuery{
 
     private void parseConfigFile(JdbcTemplate owner1JdbcTemplate, String file) {
         JSONParser parser = new JSONParser();
-        try {
+        try (FileReader reader = new FileReader(file)) {
 
-            JSONArray message = (JSONArray) parser.parse(
-                    new FileReader(file));
+            List<?> message = (List<?>) parser.parse(reader, ORDERED_CONTAINER_FACTORY);
 
-            String temp = message.toString();
+            String temp;
             String sqlquery, table, column, whereClause, fromClause;
             int n = message.size();
-            int k;
             for (int i = 0; i < n; i = i + 1) {
-                temp = message.get(i).toString();
                 Object object = message.get(i);
-                temp = object.toString();
-                k = temp.indexOf("\"");
-                if (k != -1) {
-                    JSONObject jsonobject = (JSONObject) message.get(i);
-                    sqlquery = jsonobject.values().toString().substring(1, jsonobject.values().toString().length() - 1);
+                Map<?, ?> bind = null;
+                sqlquery = null;
+                if (object instanceof Map) {
+                    Map<?, ?> jsonobject = (Map<?, ?>) object;
+                    temp = null;
+                    for (Map.Entry<?, ?> entry : jsonobject.entrySet()) {
+                        if (BindRules.BIND_KEY.equals(entry.getKey())) {
+                            if (!(entry.getValue() instanceof Map)) {
+                                throw new IllegalArgumentException("bind should be an object in " + object);
+                            }
+                            bind = (Map<?, ?>) entry.getValue();
+                        } else {
+                            temp = entry.getKey().toString();
+                            sqlquery = entry.getValue() == null ? null : entry.getValue().toString();
+                        }
+                    }
+                    if (temp == null) {
+                        throw new IllegalArgumentException("table.column is not set in " + object);
+                    }
+                } else {
+                    temp = object.toString();
+                }
+                table = temp.substring(0, temp.indexOf("."));
+                column = temp.substring(temp.indexOf(".") + 1);
+                if (sqlquery != null && !sqlquery.trim().isEmpty()) {
                     whereClause = sqlquery.substring(sqlquery.toLowerCase().indexOf("where") + 6);
                     fromClause = sqlquery.substring(sqlquery.toLowerCase().indexOf("from") + 4, sqlquery.toLowerCase().indexOf("where"));
-                    temp = temp.substring(2, temp.indexOf(":") - 1);
-                    table = temp.substring(0, temp.indexOf("."));
-                    column = temp.substring(temp.indexOf(".") + 1);
                 } else {
-                    table = temp.substring(0, temp.indexOf("."));
-                    column = temp.substring(temp.indexOf(".") + 1);
                     sqlquery = "select " + column + " from " + table;
                     whereClause = null;
                     fromClause = table;
@@ -79,7 +115,8 @@ public class SelectQuery{
                     e = e1;
                 }
 
-                TableNode tempr = new TableNode(i + 1, table.toLowerCase(), fromClause, column, primKeyColName.toLowerCase(), whereClause, "SQL", this.TOTAL_ROWS_COL_NAME);
+                TableNode tempr = new TableNode(i + 1, table.toLowerCase(), fromClause, column, primKeyColName.toLowerCase(), whereClause, "SQL", this.TOTAL_ROWS_COL_NAME,
+                        BindRules.create(table, column, bind));
                 this.values.add(tempr);
             }
         } catch (IOException | ParseException ex) {
@@ -88,6 +125,42 @@ public class SelectQuery{
         }
     }
     
+    /**
+     * Configuration with primary key columns already looked up in the source schema, so it is loaded again by
+     * {@link #fromResolvedConfiguration(List)} without queries to the source schema
+     */
+    public List<Map<String, Object>> getResolvedConfiguration() {
+        List<Map<String, Object>> tables = new ArrayList<>();
+        for (TableNode node : values) {
+            Map<String, Object> table = new LinkedHashMap<>();
+            table.put(TABLE_KEY, node.getTableName());
+            table.put(COLUMN_KEY, node.getSqlColName());
+            table.put(FROM_KEY, node.getFromClause());
+            table.put(WHERE_KEY, node.getWhereClause());
+            table.put(PK_KEY, node.getPrimKeyColName());
+            table.put(BindRules.BIND_KEY, node.getBindRules().getBind());
+            tables.add(table);
+        }
+        return tables;
+    }
+
+    /**
+     * @param tables configuration returned by {@link #getResolvedConfiguration()}, objects should keep the order
+     *               of keys
+     */
+    public static SelectQuery fromResolvedConfiguration(List<?> tables) {
+        SelectQuery selectQuery = new SelectQuery();
+        for (int i = 0; i < tables.size(); i++) {
+            Map<?, ?> table = (Map<?, ?>) tables.get(i);
+            String tableName = (String) table.get(TABLE_KEY);
+            String column = (String) table.get(COLUMN_KEY);
+            selectQuery.values.add(new TableNode(i + 1, tableName, (String) table.get(FROM_KEY), column,
+                    (String) table.get(PK_KEY), (String) table.get(WHERE_KEY), "SQL", TOTAL_ROWS_COL_NAME,
+                    BindRules.create(tableName, column, (Map<?, ?>) table.get(BindRules.BIND_KEY))));
+        }
+        return selectQuery;
+    }
+
     public List<TableNode> values(){
         return this.values;
     }
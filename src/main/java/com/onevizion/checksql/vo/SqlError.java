@@ -35,6 +35,22 @@ public class SqlError {
         this.checksqlErrorType = checksqlErrorType;
     }
 
+    public SqlError(SqlError sqlError) {
+        tableName = sqlError.tableName;
+        sqlColName = sqlError.sqlColName;
+        entityId = sqlError.entityId;
+        query = sqlError.query;
+        entityIdColName = sqlError.entityIdColName;
+        errMsg = sqlError.errMsg;
+        errType = sqlError.errType;
+        originalQuery = sqlError.originalQuery;
+        shortErrMsg = sqlError.shortErrMsg;
+        checksqlErrorType = sqlError.checksqlErrorType;
+        phase = sqlError.phase;
+        table = sqlError.table;
+        row = sqlError.row;
+    }
+
     @Override
     public String toString() {
         StringBuilder msg = new StringBuilder(LINE_DELIMITER);
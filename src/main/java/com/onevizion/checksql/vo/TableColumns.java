@@ -0,0 +1,26 @@
+package com.onevizion.checksql.vo;
+
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * Numbers of the columns of a table query, they are resolved by the first fetched row and used for all rows
+ */
+public class TableColumns {
+
+    private final int primKeyColNum;
+    private final int sqlColNum;
+
+    public TableColumns(SqlRowSet sqlRowSet, CheckSqlQuery query) {
+        primKeyColNum = TableValue.findColumn(sqlRowSet, query.getPrimKeyColName());
+        sqlColNum = TableValue.findColumn(sqlRowSet, query.getSqlColName());
+    }
+
+    public int getPrimKeyColNum() {
+        return primKeyColNum;
+    }
+
+    public int getSqlColNum() {
+        return sqlColNum;
+    }
+
+}
@@ -1,8 +1,16 @@
 package com.onevizion.checksql.vo;
 
+import java.util.Collection;
+import java.util.Iterator;
+
 public class TableNode implements CheckSqlQuery{
     
 	public final String TOTAL_ROWS_COL_NAME;
+
+    public static final String ROW_SCN_COL_NAME = "checksql_rowscn";
+
+    // Oracle limits an IN list by 1000 values
+    private static final int MAX_IN_LIST_SIZE = 1000;
     
     private final String fromClause;
     private final String sqlColName;
@@ -11,9 +19,11 @@ public class TableNode implements CheckSqlQuery{
     private final String tableName;
     private final String queryType;
     private final int ordNum;
+    private final BindRules bindRules;
     
     TableNode(int ordNum, String tableName, String fromClause, String sqlColName,
-	            String primKeyColName, String whereClause, String queryType, String TOTAL_ROWS_COL_NAME) {
+	            String primKeyColName, String whereClause, String queryType, String TOTAL_ROWS_COL_NAME,
+	            BindRules bindRules) {
 	    this.ordNum = ordNum;
 	    this.fromClause = fromClause;
 	    this.sqlColName = sqlColName;
@@ -22,6 +32,7 @@ public class TableNode implements CheckSqlQuery{
 	    this.tableName = tableName;   
 	    this.queryType = queryType;
 	    this.TOTAL_ROWS_COL_NAME = TOTAL_ROWS_COL_NAME;
+	    this.bindRules = bindRules;
     }
     
     @Override
@@ -51,6 +62,10 @@ public class TableNode implements CheckSqlQuery{
         return tableName;
     }
     
+    public BindRules getBindRules() {
+        return bindRules;
+    }
+
     @Override
     public String getQueryType() {
         return queryType;
@@ -76,4 +91,63 @@ public class TableNode implements CheckSqlQuery{
         return sql.toString();
     }
 
+    /**
+     * Same rows as {@link #getSql()} with ORA_ROWSCN of each row. When scn is set only rows changed after it
+     * and rows with the given primary keys are returned
+     */
+    public String getChangedRowsSql(Long scn, Collection<String> entityIds) {
+        StringBuilder sql = new StringBuilder("select ");
+        sql.append(getPrimKeyColName());
+        sql.append(", ");
+        sql.append(getSqlColName());
+        sql.append(", ");
+        sql.append(getRowScnColName());
+        sql.append(" as ");
+        sql.append(ROW_SCN_COL_NAME);
+        sql.append(", count(*) over () as ");
+        sql.append(TOTAL_ROWS_COL_NAME);
+        sql.append(" from ");
+        sql.append(getFromClause());
+        sql.append(" where ");
+        sql.append(getSqlColName());
+        sql.append(" is not null");
+        if (getWhereClause() != null) {
+            sql.append(" and (");
+            sql.append(getWhereClause());
+            sql.append(")");
+        }
+        if (scn != null) {
+            sql.append(" and (");
+            sql.append(getRowScnColName());
+            sql.append(" > ");
+            sql.append(scn);
+            Iterator<String> entityIdIter = entityIds.iterator();
+            while (entityIdIter.hasNext()) {
+                sql.append(" or ");
+                sql.append(getPrimKeyColName());
+                sql.append(" in (");
+                for (int i = 0; i < MAX_IN_LIST_SIZE && entityIdIter.hasNext(); i++) {
+                    if (i > 0) {
+                        sql.append(", ");
+                    }
+                    sql.append("'");
+                    sql.append(entityIdIter.next().replace("'", "''"));
+                    sql.append("'");
+                }
+                sql.append(")");
+            }
+            sql.append(")");
+        }
+        return sql.toString();
+    }
+
+    private String getRowScnColName() {
+        // Column of the checked table is qualified by alias when rows are selected from a join
+        int dotIndex = sqlColName.lastIndexOf('.');
+        if (dotIndex == -1) {
+            return "ora_rowscn";
+        }
+        return sqlColName.substring(0, dotIndex + 1) + "ora_rowscn";
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.onevizion.checksql.vo;
+
+public class TableRow {
+
+    private final String entityId;
+    private final String sql;
+    private final int row;
+
+    public TableRow(String entityId, String sql, int row) {
+        this.entityId = entityId;
+        this.sql = sql;
+        this.row = row;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+}
@@ -1,9 +1,7 @@
 package com.onevizion.checksql.vo;
 
-import org.apache.commons.io.IOUtils;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
-import java.io.IOException;
 import java.sql.Clob;
 import java.sql.SQLException;
 import java.sql.Types;
@@ -43,47 +41,71 @@ public class TableValue<V> {
     }
 
     public static TableValue<String> createString(SqlRowSet sqlRowSet, String colName) {
-        String strVal = null;
-        SqlError sqlError = null;
+        return createString(sqlRowSet, findColumn(sqlRowSet, colName), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns number of the column with the given name or -1 when there is no such column
+     */
+    public static int findColumn(SqlRowSet sqlRowSet, String colName) {
+        int foundColNum = -1;
         for (int colNum = 1; colNum <= sqlRowSet.getMetaData().getColumnCount(); colNum++) {
-            if (!colName.equalsIgnoreCase(sqlRowSet.getMetaData().getColumnName(colNum))) {
-                continue;
+            if (colName.equalsIgnoreCase(sqlRowSet.getMetaData().getColumnName(colNum))) {
+                foundColNum = colNum;
             }
-            int colType = sqlRowSet.getMetaData().getColumnType(colNum);
+        }
+        return foundColNum;
+    }
 
-            if (Types.CLOB == colType) {
-                Clob clobObj = (Clob) sqlRowSet.getObject(colNum);
+    /**
+     * Value longer than maxLength is reported as an error, CLOB of such value is not read at all
+     */
+    public static TableValue<String> createString(SqlRowSet sqlRowSet, int colNum, int maxLength) {
+        if (colNum == -1) {
+            return new TableValue<>(null, null);
+        }
 
-                try {
-                    strVal = IOUtils.toString(clobObj.getCharacterStream());
-                } catch (SQLException e) {
-                    sqlError = new SqlError("Clob2Stream");
-                    sqlError.setErrMsg(e.getMessage());
-                } catch (IOException e) {
-                    sqlError = new SqlError("Stream2Writer");
-                    sqlError.setErrMsg(e.getMessage());
+        String strVal = null;
+        SqlError sqlError = null;
+        if (Types.CLOB == sqlRowSet.getMetaData().getColumnType(colNum)) {
+            Clob clobObj = (Clob) sqlRowSet.getObject(colNum);
+            try {
+                if (clobObj != null && clobObj.length() > maxLength) {
+                    sqlError = createTooLongErr(clobObj.length(), maxLength);
+                } else if (clobObj != null) {
+                    strVal = readClob(clobObj);
                 }
-            } else {
-                strVal = sqlRowSet.getString(colNum);
+            } catch (SQLException e) {
+                sqlError = new SqlError("Clob2Stream");
+                sqlError.setErrMsg(e.getMessage());
+            }
+        } else {
+            strVal = sqlRowSet.getString(colNum);
+            if (strVal != null && strVal.length() > maxLength) {
+                sqlError = createTooLongErr(strVal.length(), maxLength);
+                strVal = null;
             }
-
         }
         return new TableValue<>(strVal, sqlError);
     }
 
+    /**
+     * Value read before, e.g. from a rows archive, longer than maxLength is reported as an error
+     */
+    public static TableValue<String> createString(String strVal, int maxLength) {
+        if (strVal != null && strVal.length() > maxLength) {
+            return new TableValue<>(null, createTooLongErr(strVal.length(), maxLength));
+        }
+        return new TableValue<>(strVal, null);
+    }
+
     public static TableValue<String> createStringErr(SqlRowSet sqlRowSet, boolean isPlSqlBlock) {
         StringBuilder strVal = new StringBuilder();
         SqlError sqlError = null;
         for (int colNum = 1; colNum <= sqlRowSet.getMetaData().getColumnCount(); colNum++) {
             if ("line".equalsIgnoreCase(sqlRowSet.getMetaData().getColumnName(colNum))) {
                 strVal.append(", line ");
-                Integer line = sqlRowSet.getInt(colNum);
-                if (isPlSqlBlock) {
-                    line -= 3;
-                } else {
-                    line -= 1;
-                }
-                strVal.append(line.toString());
+                strVal.append(getSourceLine(sqlRowSet.getInt(colNum), isPlSqlBlock));
                 continue;
             }
 
@@ -93,13 +115,10 @@ public class TableValue<V> {
                 Clob clobObj = (Clob) sqlRowSet.getObject(colNum);
 
                 try {
-                    strVal.append(IOUtils.toString(clobObj.getCharacterStream()));
+                    strVal.append(readClob(clobObj));
                 } catch (SQLException e) {
                     sqlError = new SqlError("Clob2Stream");
                     sqlError.setErrMsg(e.getMessage());
-                } catch (IOException e) {
-                    sqlError = new SqlError("Stream2Writer");
-                    sqlError.setErrMsg(e.getMessage());
                 }
             } else {
                 strVal.append(sqlRowSet.getString(colNum));
@@ -109,6 +128,35 @@ public class TableValue<V> {
         return new TableValue<>(strVal.toString(), sqlError);
     }
 
+    /**
+     * Converts a line of compiled view or procedure to a line of the original SQL
+     */
+    public static int getSourceLine(int line, boolean isPlSqlBlock) {
+        if (isPlSqlBlock) {
+            return line - 3;
+        } else {
+            return line - 1;
+        }
+    }
+
+    /**
+     * Whole CLOB is read by one call into a string of the exact size, without intermediate stream buffers
+     */
+    private static String readClob(Clob clobObj) throws SQLException {
+        long length = clobObj.length();
+        if (length == 0) {
+            return "";
+        }
+        return clobObj.getSubString(1, (int) length);
+    }
+
+    private static SqlError createTooLongErr(long length, int maxLength) {
+        SqlError sqlError = new SqlError("SQL-TOO-LONG");
+        sqlError.setErrMsg("Value is " + length + " characters long, max length is " + maxLength);
+        sqlError.setShortErrMsg(sqlError.getErrMsg());
+        return sqlError;
+    }
+
     public boolean hasError() {
         return sqlError != null;
     }
@@ -0,0 +1,72 @@
+declare
+    c_delim constant varchar2(1) := ',';
+    v_batch clob := ?;
+    v_result clob;
+    v_sql clob;
+    v_pos integer := 1;
+    v_sep integer;
+    v_kind varchar2(1);
+    v_name varchar2(128);
+    v_len integer;
+    v_num integer := 0;
+    v_cursor integer;
+
+    procedure add_result(p_type varchar2, p_code integer, p_text varchar2) is
+        v_line varchar2(32767);
+    begin
+        v_line := v_num || c_delim || p_type || c_delim || p_code || c_delim || nvl(length(p_text), 0) || c_delim || p_text;
+        dbms_lob.writeappend(v_result, length(v_line), v_line);
+    end;
+
+    procedure add_proc_errors is
+    begin
+        for e in (select line, text from user_errors where name = v_name and type = 'PROCEDURE' order by sequence) loop
+            add_result('L', e.line, e.text);
+        end loop;
+    end;
+
+    function read_field return varchar2 is
+        v_field varchar2(128);
+    begin
+        v_sep := dbms_lob.instr(v_batch, c_delim, v_pos);
+        if v_sep > v_pos then
+            v_field := dbms_lob.substr(v_batch, v_sep - v_pos, v_pos);
+        end if;
+        v_pos := v_sep + 1;
+        return v_field;
+    end;
+begin
+    dbms_lob.createtemporary(v_result, true);
+    while v_pos <= dbms_lob.getlength(v_batch) loop
+        v_kind := read_field();
+        v_name := read_field();
+        v_len := to_number(read_field());
+        dbms_lob.createtemporary(v_sql, true);
+        dbms_lob.copy(v_sql, v_batch, v_len, 1, v_pos);
+        v_pos := v_pos + v_len;
+        v_num := v_num + 1;
+
+        begin
+            if v_kind = 'S' then
+                v_cursor := dbms_sql.open_cursor;
+                begin
+                    dbms_sql.parse(v_cursor, v_sql, dbms_sql.native);
+                    dbms_sql.close_cursor(v_cursor);
+                exception when others then
+                    dbms_sql.close_cursor(v_cursor);
+                    raise;
+                end;
+            else
+                execute immediate v_sql;
+            end if;
+        exception when others then
+            if sqlcode = -24344 and v_kind = 'P' then
+                add_proc_errors();
+            else
+                add_result('E', sqlcode, sqlerrm);
+            end if;
+        end;
+        dbms_lob.freetemporary(v_sql);
+    end loop;
+    ? := v_result;
+end;
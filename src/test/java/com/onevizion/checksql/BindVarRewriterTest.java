@@ -0,0 +1,105 @@
+package com.onevizion.checksql;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BindVarRewriterTest {
+
+    private static final String[][] STATIC_RULES = {
+            {":ENTITY_PK", "0"},
+            {":VALUE", "0"},
+            {":[USER_ID]", "0"},
+            {":[PROGRAM_ID]", "0"},
+            {"[DATE_FORMAT]", "p"},
+            {"[COLUMN_NAME]", "p"},
+            {":TABLE_NAME", "xitor"},
+            {"[USER_ID]", "0"},
+            {"[PROGRAM_ID]", "0"}};
+
+    private static final String[][] RULE_RULES = {
+            {":return_str", "v_ret_str"},
+            {":id_num", "0"},
+            {":pk", "0"},
+            {":ln", "0"},
+            {":parent_id", "0"},
+            {":child_id", "0"},
+            {":imp_run_id", "0"}};
+
+    @Test
+    public void firstAddedRuleWinsOnOverlappingPrefix() {
+        BindVarRewriter rewriter = new BindVarRewriter(false).add(":p", "1").add(":p_id", "2");
+        assertEquals("select 1_id, 1 from dual", rewriter.rewrite("select :p_id, :p from dual"));
+    }
+
+    @Test
+    public void longerRuleAddedFirstWinsOnOverlappingPrefix() {
+        BindVarRewriter rewriter = new BindVarRewriter(false).add(":p_id", "2").add(":p", "1");
+        assertEquals("select 2, 1 from dual", rewriter.rewrite("select :p_id, :p from dual"));
+    }
+
+    @Test
+    public void ignoresCaseOfTargets() {
+        BindVarRewriter rewriter = new BindVarRewriter(true).add(":pk", "0");
+        assertEquals("where id = 0 or id = 0", rewriter.rewrite("where id = :PK or id = :pk"));
+    }
+
+    @Test
+    public void keepsCaseOfTargets() {
+        BindVarRewriter rewriter = new BindVarRewriter(false).add(":VALUE", "v_imp_entity");
+        assertEquals("v_imp_entity := :value", rewriter.rewrite(":VALUE := :value"));
+    }
+
+    @Test
+    public void keepsFirstReplacementOfDuplicatedTarget() {
+        BindVarRewriter rewriter = new BindVarRewriter(true).add(":pk", "1").add(":PK", "2").add(" ", "3");
+        assertEquals("id = 1", new BindVarRewriter(true).addAll(rewriter).add("", "4").rewrite("id = :Pk"));
+    }
+
+    @Test
+    public void insertsReplacementLiterally() {
+        BindVarRewriter rewriter = new BindVarRewriter(false).add(":p", "'$1\\\\'");
+        assertEquals("x = '$1\\\\'", rewriter.rewrite("x = :p"));
+    }
+
+    @Test
+    public void returnsSameTextWithoutMatches() {
+        String sql = "select 1 from dual";
+        assertSame(sql, new BindVarRewriter(false).add(":p", "0").rewrite(sql));
+        assertSame(sql, new BindVarRewriter(false).rewrite(sql));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsRulesAfterCompile() {
+        new BindVarRewriter(false).add(":p", "0").compile().add(":q", "0");
+    }
+
+    @Test
+    public void matchesSequentialReplacementOfStaticRules() {
+        assertMatchesSequential(STATIC_RULES, false,
+                "begin :[USER_ID] := [USER_ID]; :VALUE := to_char(sysdate, '[DATE_FORMAT]'); "
+                        + "select [COLUMN_NAME] from :TABLE_NAME where id = :ENTITY_PK and p = :[PROGRAM_ID]; end;");
+    }
+
+    @Test
+    public void matchesSequentialReplacementOfCaseInsensitiveRules() {
+        assertMatchesSequential(RULE_RULES, true,
+                ":RETURN_STR := pkg.f(:Id_Num, :pk, :pk_id, :ln, :LN2, :parent_id, :child_id, :imp_run_id);");
+    }
+
+    private void assertMatchesSequential(String[][] rules, boolean ignoreCase, String sql) {
+        BindVarRewriter rewriter = new BindVarRewriter(ignoreCase);
+        String expected = sql;
+        for (String[] rule : rules) {
+            rewriter.add(rule[0], rule[1]);
+            expected = Pattern.compile(Pattern.quote(rule[0]), ignoreCase ? Pattern.CASE_INSENSITIVE : 0)
+                              .matcher(expected).replaceAll(Matcher.quoteReplacement(rule[1]));
+        }
+        assertEquals(expected, rewriter.rewrite(sql));
+    }
+
+}
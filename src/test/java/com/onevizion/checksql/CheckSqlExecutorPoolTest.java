@@ -0,0 +1,173 @@
+package com.onevizion.checksql;
+
+import com.onevizion.checksql.vo.Configuration;
+import com.onevizion.checksql.vo.PrecheckMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Starts workers of the executor on a test pool which is sized the way {@link CheckSqlApp} sizes it by default,
+ * so every connection the run needs at start has to fit into it
+ */
+public class CheckSqlExecutorPoolTest {
+
+    private static final int WORKERS = 4;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private Configuration config;
+    private Semaphore pool;
+    private CheckSqlExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new Configuration();
+        config.setWorkers(WORKERS);
+        pool = new Semaphore(CheckSqlApp.getTestPoolSize(config));
+
+        executor = new CheckSqlExecutor();
+        setField("config", config);
+        setField("test1JdbcTemplate", new JdbcTemplate(createPoolDataSource(pool)));
+        setField("targetDataSources", Collections.emptyList());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        invoke("stopWorkers");
+        assertEquals("Connections are not returned to the pool", WORKERS, pool.availablePermits());
+    }
+
+    @Test
+    public void loadsCatalogForPrecheckWithDefaultPoolSize() throws Exception {
+        config.setPrecheckMode(PrecheckMode.FAIL);
+        invoke("startWorkers");
+        assertEquals(0, pool.availablePermits());
+    }
+
+    @Test
+    public void exportsCatalogWithDefaultPoolSize() throws Exception {
+        File snapshot = new File(tempDir.getRoot(), "catalog.json");
+        config.setCatalogExport(snapshot.getPath());
+        invoke("startWorkers");
+        assertTrue(snapshot.isFile());
+    }
+
+    private void setField(String name, Object value) throws ReflectiveOperationException {
+        Field field = CheckSqlExecutor.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(executor, value);
+    }
+
+    private void invoke(String name) throws Exception {
+        Method method = CheckSqlExecutor.class.getDeclaredMethod(name);
+        method.setAccessible(true);
+        try {
+            method.invoke(executor);
+        } catch (InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Fails like an exhausted UCP pool when all connections are borrowed. Each query returns one row
+     */
+    private static DataSource createPoolDataSource(Semaphore pool) {
+        return proxy(DataSource.class, (proxy, method, args) -> {
+            if ("getConnection".equals(method.getName())) {
+                if (!pool.tryAcquire()) {
+                    throw new SQLException("No connection is available in the pool");
+                }
+                return createConnection(pool);
+            }
+            return defaultValue(method);
+        });
+    }
+
+    private static Connection createConnection(Semaphore pool) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        pool.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get();
+                case "createStatement":
+                    return createStatement();
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    private static Statement createStatement() {
+        return proxy(Statement.class, (proxy, method, args) -> {
+            if ("executeQuery".equals(method.getName())) {
+                return createResultSet();
+            }
+            return defaultValue(method);
+        });
+    }
+
+    private static ResultSet createResultSet() {
+        AtomicBoolean read = new AtomicBoolean();
+        ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (proxy, method, args) ->
+                "getColumnCount".equals(method.getName()) ? 1 : defaultValue(method));
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return read.compareAndSet(false, true);
+                case "getString":
+                    return "CHECKSQL";
+                case "getMetaData":
+                    return metaData;
+                default:
+                    return defaultValue(method);
+            }
+        });
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+}